@@ -0,0 +1,29 @@
+package chess.benchmarks;
+
+import chess.ChessGame;
+import chess.Fen;
+
+/**
+ * The positions every benchmark runs against, so results from different suites can be compared
+ */
+public enum BenchmarkPosition {
+    /** The normal starting position */
+    START(Fen.START_POSITION),
+    /** A crowded middlegame with pins, checks and captures available ("Kiwipete") */
+    MIDDLEGAME("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"),
+    /** A sparse endgame with long sliding moves and en passant */
+    ENDGAME("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1");
+
+    private final String fen;
+
+    BenchmarkPosition(String fen) {
+        this.fen = fen;
+    }
+
+    /**
+     * @return A new game set up in this position
+     */
+    public ChessGame load() {
+        return Fen.load(fen);
+    }
+}
@@ -0,0 +1,44 @@
+package chess.benchmarks;
+
+import chess.ChessBoard;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the ChessBoard operations that collections and game state copies lean on
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark {
+    @Param
+    public BenchmarkPosition position;
+
+    private ChessBoard board;
+    private ChessBoard equalBoard;
+
+    @Setup
+    public void setUp() {
+        board = position.load().getBoard();
+        equalBoard = position.load().getBoard();
+    }
+
+    @Benchmark
+    public ChessBoard copy() {
+        return new ChessBoard(board);
+    }
+
+    @Benchmark
+    public boolean equalsEqualBoard() {
+        return board.equals(equalBoard);
+    }
+
+    @Benchmark
+    public int hashCodeBoard() {
+        return board.hashCode();
+    }
+}
@@ -0,0 +1,89 @@
+package chess.benchmarks;
+
+import chess.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the ChessGame rule checks the server runs on every request: move validation and game status
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameBenchmark {
+    @Param
+    public BenchmarkPosition position;
+
+    private ChessGame game;
+    private ChessPosition[] occupiedSquares;
+
+    @Setup
+    public void setUp() {
+        game = position.load();
+        var found = new ArrayList<ChessPosition>();
+        for(int row = 1; row <= 8; ++row){
+            for(int col = 1; col <= 8; ++col){
+                ChessPosition square = ChessPosition.of(row, col);
+                if(game.getBoard().getPiece(square) != null) found.add(square);
+            }
+        }
+        occupiedSquares = found.toArray(new ChessPosition[0]);
+    }
+
+    /** validMoves() for every occupied square, as a client highlighting each piece would ask for */
+    @Benchmark
+    public void validMovesAllSquares(Blackhole blackhole) {
+        game.setValidMovesCache(null);
+        for(ChessPosition square : occupiedSquares){
+            blackhole.consume(game.validMoves(square));
+        }
+    }
+
+    /** The same queries answered from the shared cache, as when several clients watch one position */
+    @Benchmark
+    public void validMovesAllSquaresCached(Blackhole blackhole) {
+        game.setValidMovesCache(ValidMovesCache.SHARED);
+        for(ChessPosition square : occupiedSquares){
+            blackhole.consume(game.validMoves(square));
+        }
+    }
+
+    @Benchmark
+    public Object validTeamMoves() {
+        return game.validTeamMoves(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInCheck() {
+        return game.isInCheck(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInCheckmate() {
+        return game.isInCheckmate(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInStalemate() {
+        return game.isInStalemate(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public Object getOutcome() {
+        return game.getOutcome(game.getTeamTurn());
+    }
+
+    /** A fresh single-pass status, with the cached one cleared by a null move through setTeamTurn() */
+    @Benchmark
+    public Object getStatus() {
+        game.setTeamTurn(game.getTeamTurn() == ChessGame.TeamColor.WHITE ?
+                ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        return game.getStatus();
+    }
+}
@@ -0,0 +1,55 @@
+package chess.benchmarks;
+
+import chess.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times ChessPiece.pieceMoves() for every piece of one type in a position
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PieceMovesBenchmark {
+    @Param
+    public BenchmarkPosition position;
+
+    @Param
+    public ChessPiece.PieceType pieceType;
+
+    private ChessBoard board;
+    private ChessPosition[] squares;
+    private ChessPiece[] pieces;
+
+    @Setup
+    public void setUp() {
+        board = position.load().getBoard();
+        var foundSquares = new ArrayList<ChessPosition>();
+        var foundPieces = new ArrayList<ChessPiece>();
+        for(int row = 1; row <= 8; ++row){
+            for(int col = 1; col <= 8; ++col){
+                ChessPosition square = ChessPosition.of(row, col);
+                ChessPiece piece = board.getPiece(square);
+                if(piece != null && piece.getPieceType() == pieceType){
+                    foundSquares.add(square);
+                    foundPieces.add(piece);
+                }
+            }
+        }
+        squares = foundSquares.toArray(new ChessPosition[0]);
+        pieces = foundPieces.toArray(new ChessPiece[0]);
+    }
+
+    @Benchmark
+    public void pieceMoves(Blackhole blackhole) {
+        for(int i = 0; i < pieces.length; ++i){
+            blackhole.consume(pieces[i].pieceMoves(board, squares[i]));
+        }
+    }
+}
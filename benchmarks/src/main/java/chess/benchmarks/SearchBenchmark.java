@@ -0,0 +1,38 @@
+package chess.benchmarks;
+
+import chess.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times a fixed-depth Search. The search is deterministic at a fixed depth, so every run visits the same nodes and
+ * the time per search converts straight into nodes per second.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchBenchmark {
+    @Param
+    public BenchmarkPosition position;
+
+    @Param({"4"})
+    public int depth;
+
+    private ChessGame game;
+    private Search search;
+
+    @Setup
+    public void setUp() {
+        game = position.load();
+        search = new Search();
+    }
+
+    @Benchmark
+    public SearchResult fixedDepth() {
+        return search.search(game, Search.Limits.depth(depth));
+    }
+}
@@ -0,0 +1,156 @@
+package chess;
+
+/**
+ * Bitboard attack sets for each kind of piece, using the same square numbering as ChessBoard (a1 = 0, h8 = 63).
+ * An attack set holds every square a piece could capture on, whether or not a piece is actually there.
+ * <p>
+ * Knight, king and pawn attacks are precomputed for every square when the class loads, so looking one up is a single
+ * array read with no bounds checks. Rook, bishop and queen attacks come from MagicBitboards.
+ */
+public final class Attacks {
+    private static final long FILE_A = 0x0101010101010101L;
+    private static final long FILE_H = FILE_A << 7;
+    private static final long NOT_A = ~FILE_A;
+    private static final long NOT_H = ~FILE_H;
+    private static final long NOT_AB = ~(FILE_A | (FILE_A << 1));
+    private static final long NOT_GH = ~(FILE_H | (FILE_H >>> 1));
+
+    private static final int[][] ORTHOGONAL_DIRECTIONS = {{0, 1},{1, 0},{0, -1},{-1, 0}};
+    private static final int[][] DIAGONAL_DIRECTIONS = {{1, 1},{1, -1},{-1, -1},{-1, 1}};
+
+    // BETWEEN[a][b] holds the squares strictly between two squares on a shared row, column or diagonal, and
+    // LINE[a][b] the whole line through both of them. Both are empty for squares that don't share a line.
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    // Attack sets of the jumping pieces, looked up by square. PAWN_ATTACKS is indexed by TeamColor ordinal first.
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    static {
+        for(int from = 0; from < 64; ++from){
+            for(int[] direction : ORTHOGONAL_DIRECTIONS) fillLines(from, direction);
+            for(int[] direction : DIAGONAL_DIRECTIONS) fillLines(from, direction);
+
+            long b = 1L << from;
+            KNIGHT_ATTACKS[from] = ((b << 17) & NOT_A) | ((b << 15) & NOT_H) | ((b << 10) & NOT_AB) |
+                    ((b << 6) & NOT_GH) | ((b >>> 17) & NOT_H) | ((b >>> 15) & NOT_A) | ((b >>> 10) & NOT_GH) |
+                    ((b >>> 6) & NOT_AB);
+            KING_ATTACKS[from] = (b << 8) | (b >>> 8) | (((b << 1) | (b << 9) | (b >>> 7)) & NOT_A) |
+                    (((b >>> 1) | (b >>> 9) | (b << 7)) & NOT_H);
+            PAWN_ATTACKS[ChessGame.TeamColor.WHITE.ordinal()][from] = ((b << 9) & NOT_A) | ((b << 7) & NOT_H);
+            PAWN_ATTACKS[ChessGame.TeamColor.BLACK.ordinal()][from] = ((b >>> 7) & NOT_A) | ((b >>> 9) & NOT_H);
+        }
+    }
+
+    private Attacks() {}
+
+    private static void fillLines(int from, int[] direction) {
+        long fullLine = 1L << from;
+        fullLine |= ray(from, direction[0], direction[1]);
+        fullLine |= ray(from, -direction[0], -direction[1]);
+        long between = 0;
+        int row = from / 8 + direction[0], col = from % 8 + direction[1];
+        while(row >= 0 && row < 8 && col >= 0 && col < 8){
+            int to = row * 8 + col;
+            BETWEEN[from][to] = between;
+            LINE[from][to] = fullLine;
+            between |= 1L << to;
+            row += direction[0];
+            col += direction[1];
+        }
+    }
+
+    // Every square from the given one to the edge of the board in one direction, on an empty board
+    private static long ray(int square, int rowStep, int colStep) {
+        long squares = 0;
+        int row = square / 8 + rowStep, col = square % 8 + colStep;
+        while(row >= 0 && row < 8 && col >= 0 && col < 8){
+            squares |= 1L << (row * 8 + col);
+            row += rowStep;
+            col += colStep;
+        }
+        return squares;
+    }
+
+    /**
+     * @return The squares a knight on the given square attacks
+     */
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    /**
+     * @return The squares a king on the given square attacks
+     */
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    /**
+     * @param color The team the pawn belongs to, which decides which way it attacks
+     * @return The two (or one, on the edge) diagonal squares a pawn on the given square attacks
+     */
+    public static long pawnAttacks(ChessGame.TeamColor color, int square) {
+        return PAWN_ATTACKS[color.ordinal()][square];
+    }
+
+    /**
+     * @param occupancy Every occupied square on the board. The first occupied square along each ray is included.
+     * @return The squares a rook on the given square attacks
+     */
+    public static long rookAttacks(int square, long occupancy) {
+        return MagicBitboards.rookAttacks(square, occupancy);
+    }
+
+    /**
+     * @param occupancy Every occupied square on the board. The first occupied square along each ray is included.
+     * @return The squares a bishop on the given square attacks
+     */
+    public static long bishopAttacks(int square, long occupancy) {
+        return MagicBitboards.bishopAttacks(square, occupancy);
+    }
+
+    /**
+     * @param occupancy Every occupied square on the board. The first occupied square along each ray is included.
+     * @return The squares a queen on the given square attacks
+     */
+    public static long queenAttacks(int square, long occupancy) {
+        return MagicBitboards.rookAttacks(square, occupancy) | MagicBitboards.bishopAttacks(square, occupancy);
+    }
+
+    /**
+     * Finds every piece of a team that attacks a square, given a (possibly hypothetical) set of occupied squares
+     *
+     * @param board The board to read the attacking team's pieces from
+     * @param square The square being attacked
+     * @param attacker The team whose pieces are attacking
+     * @param occupancy The occupied squares to use for blocking sliding pieces
+     * @return A bitboard of the attacking pieces
+     */
+    public static long attackersTo(ChessBoard board, int square, ChessGame.TeamColor attacker, long occupancy) {
+        ChessGame.TeamColor defender = attacker == ChessGame.TeamColor.WHITE ?
+                ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        long queens = board.getPieces(attacker, ChessPiece.PieceType.QUEEN);
+        return (knightAttacks(square) & board.getPieces(attacker, ChessPiece.PieceType.KNIGHT)) |
+                (kingAttacks(square) & board.getPieces(attacker, ChessPiece.PieceType.KING)) |
+                (pawnAttacks(defender, square) & board.getPieces(attacker, ChessPiece.PieceType.PAWN)) |
+                (rookAttacks(square, occupancy) & (board.getPieces(attacker, ChessPiece.PieceType.ROOK) | queens)) |
+                (bishopAttacks(square, occupancy) & (board.getPieces(attacker, ChessPiece.PieceType.BISHOP) | queens));
+    }
+
+    /**
+     * @return The squares strictly between two squares that share a line, or 0 if they don't share one
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * @return The full edge-to-edge line through two squares, or 0 if they don't share one
+     */
+    public static long line(int from, int to) {
+        return LINE[from][to];
+    }
+}
@@ -0,0 +1,115 @@
+package chess;
+
+/**
+ * Castling rights, packed as four bits: each side can castle kingside and queenside until its king or that rook
+ * moves, or the rook is captured on its home square. ChessGame keeps the bits in step on every move with one AND per
+ * square the move touches, and Zobrist hashes them.
+ * <p>
+ * A castle is stored as the king's two-square move, and the rook is moved alongside it by ChessGame.doMove().
+ */
+final class Castling {
+    static final int WHITE_KINGSIDE = 1;
+    static final int WHITE_QUEENSIDE = 2;
+    static final int BLACK_KINGSIDE = 4;
+    static final int BLACK_QUEENSIDE = 8;
+    static final int NONE = 0;
+    static final int ALL = 15;
+
+    static final int WHITE_KING_HOME = 4;
+    static final int BLACK_KING_HOME = 60;
+
+    // The rights that survive a move starting or ending on each square
+    private static final int[] KEPT_RIGHTS = new int[64];
+
+    static {
+        java.util.Arrays.fill(KEPT_RIGHTS, ALL);
+        KEPT_RIGHTS[WHITE_KING_HOME] = ALL & ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        KEPT_RIGHTS[WHITE_KING_HOME + 3] = ALL & ~WHITE_KINGSIDE;
+        KEPT_RIGHTS[WHITE_KING_HOME - 4] = ALL & ~WHITE_QUEENSIDE;
+        KEPT_RIGHTS[BLACK_KING_HOME] = ALL & ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        KEPT_RIGHTS[BLACK_KING_HOME + 3] = ALL & ~BLACK_KINGSIDE;
+        KEPT_RIGHTS[BLACK_KING_HOME - 4] = ALL & ~BLACK_QUEENSIDE;
+    }
+
+    private Castling() {}
+
+    /**
+     * @return The rights left after a move from one square to another
+     */
+    static int afterMove(int rights, int from, int to) {
+        return rights & KEPT_RIGHTS[from] & KEPT_RIGHTS[to];
+    }
+
+    static int right(ChessGame.TeamColor color, boolean kingside) {
+        if(color == ChessGame.TeamColor.WHITE) return kingside ? WHITE_KINGSIDE : WHITE_QUEENSIDE;
+        return kingside ? BLACK_KINGSIDE : BLACK_QUEENSIDE;
+    }
+
+    static int kingHome(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? WHITE_KING_HOME : BLACK_KING_HOME;
+    }
+
+    /**
+     * @param kingTo Where the king lands, two squares from its home square
+     * @return Where the castling rook starts
+     */
+    static int rookFrom(int kingTo) {
+        return kingTo % 8 == 6 ? kingTo + 1 : kingTo - 2;
+    }
+
+    /**
+     * @param kingTo Where the king lands, two squares from its home square
+     * @return Where the castling rook ends up, on the square the king passed over
+     */
+    static int rookTo(int kingTo) {
+        return kingTo % 8 == 6 ? kingTo - 1 : kingTo + 1;
+    }
+
+    /**
+     * Works out the rights a board allows when nothing is known about how it came about: each side keeps the right
+     * to castle with every rook still on its home square, as long as its king is on its own.
+     */
+    static int fromHomeSquares(ChessBoard board) {
+        int rights = NONE;
+        for(ChessGame.TeamColor color : ChessGame.TeamColor.values()){
+            int home = kingHome(color);
+            if((board.getPieces(color, ChessPiece.PieceType.KING) & (1L << home)) == 0) continue;
+            long rooks = board.getPieces(color, ChessPiece.PieceType.ROOK);
+            if((rooks & (1L << (home + 3))) != 0) rights |= right(color, true);
+            if((rooks & (1L << (home - 4))) != 0) rights |= right(color, false);
+        }
+        return rights;
+    }
+
+    /**
+     * @param field A FEN castling field such as "KQkq" or "-"
+     * @return The rights it describes
+     */
+    static int fromFen(String field) {
+        int rights = NONE;
+        for(char c : field.toCharArray()){
+            rights |= switch(c){
+                case 'K' -> WHITE_KINGSIDE;
+                case 'Q' -> WHITE_QUEENSIDE;
+                case 'k' -> BLACK_KINGSIDE;
+                case 'q' -> BLACK_QUEENSIDE;
+                case '-' -> NONE;
+                default -> throw new IllegalArgumentException("Bad castling field: " + field);
+            };
+        }
+        return rights;
+    }
+
+    /**
+     * @return The rights as a FEN castling field
+     */
+    static String toFen(int rights) {
+        if(rights == NONE) return "-";
+        StringBuilder bob = new StringBuilder();
+        if((rights & WHITE_KINGSIDE) != 0) bob.append('K');
+        if((rights & WHITE_QUEENSIDE) != 0) bob.append('Q');
+        if((rights & BLACK_KINGSIDE) != 0) bob.append('k');
+        if((rights & BLACK_QUEENSIDE) != 0) bob.append('q');
+        return bob.toString();
+    }
+}
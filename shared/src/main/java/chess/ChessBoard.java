@@ -9,20 +9,27 @@ import java.util.*;
  * signature of the existing methods.
  */
 public class ChessBoard {
-    private final ChessPiece[][] squares;
+    /*
+     * The board is stored as a set of 64-bit bitboards rather than a grid of ChessPiece objects. Bit (row-1)*8 +
+     * (col-1) of a bitboard is set when the matching square is a member of that set, so a1 is bit 0 and h8 is bit 63.
+     * bitboards[0..5] hold every piece of one PieceType (indexed by ordinal) and bitboards[6..7] hold the occupancy
+     * of each team (indexed by 6 + TeamColor ordinal), so the piece on a square is the type board and the team board
+     * that both contain it. The whole position fits in eight longs, and copying a board is a single array clone.
+     */
+    private static final int TEAM_OFFSET = 6;
+    private static final int NUM_BITBOARDS = 8;
+    private static final ChessPiece.PieceType[] PIECE_TYPES = ChessPiece.PieceType.values();
+    private static final ChessGame.TeamColor[] TEAM_COLORS = ChessGame.TeamColor.values();
+
+    private final long[] bitboards;
+
     public ChessBoard() {
-        this.squares = new ChessPiece[8][8];
+        this.bitboards = new long[NUM_BITBOARDS];
     }
 
     // Copy constructor
     public ChessBoard(ChessBoard original){
-        this.squares = new ChessPiece[8][8];
-        for(int i = 0; i < 8; ++i){
-            for(int j = 0; j < 8; ++j){
-                if(original.squares[i][j] == null) continue;
-                this.squares[i][j] = new ChessPiece(original.squares[i][j]);
-            }
-        }
+        this.bitboards = original.bitboards.clone();
     }
 
     /**
@@ -32,12 +39,15 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        squares[position.getRow()-1][position.getColumn()-1] = piece;
+        int square = toSquare(position);
+        clearSquare(square);
+        if(piece == null) return;
+        placePiece(square, piece.getTeamColor(), piece.getPieceType());
     }
 
     public ChessPiece removePiece(ChessPosition position) {
         ChessPiece pieceToRemove = getPiece(position);
-        squares[position.getRow()-1][position.getColumn()-1] = null;
+        clearSquare(toSquare(position));
         return pieceToRemove;
     }
 
@@ -49,7 +59,127 @@ public class ChessBoard {
      * position
      */
     public ChessPiece getPiece(ChessPosition position) {
-        return squares[position.getRow()-1][position.getColumn()-1];
+        int square = toSquare(position);
+        ChessGame.TeamColor color = teamAt(square);
+        if(color == null) return null;
+        return ChessPiece.of(color, pieceTypeAt(square));
+    }
+
+    /**
+     * @param color The team whose pieces should be returned
+     * @param type The type of piece to return
+     * @return A bitboard of every square holding a piece of the given team and type
+     */
+    public long getPieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return bitboards[type.ordinal()] & bitboards[TEAM_OFFSET + color.ordinal()];
+    }
+
+    /**
+     * @param color The team whose pieces should be returned
+     * @return A bitboard of every square holding a piece of the given team
+     */
+    public long getTeamOccupancy(ChessGame.TeamColor color) {
+        return bitboards[TEAM_OFFSET + color.ordinal()];
+    }
+
+    /**
+     * @return A bitboard of every occupied square
+     */
+    public long getOccupancy() {
+        return bitboards[TEAM_OFFSET] | bitboards[TEAM_OFFSET + 1];
+    }
+
+    /**
+     * Determines if any piece of the given team attacks a square. Rather than generating the attacking team's moves,
+     * this looks at the square's own attack sets for each kind of piece and checks whether the attacking team has
+     * that kind of piece on any of them.
+     *
+     * @param position The square to test
+     * @param attacker The team that might be attacking the square
+     * @return True if a piece of the attacking team could capture on that square
+     */
+    public boolean isSquareAttacked(ChessPosition position, ChessGame.TeamColor attacker) {
+        return isSquareAttacked(toSquare(position), attacker);
+    }
+
+    boolean isSquareAttacked(int square, ChessGame.TeamColor attacker) {
+        long attackers = getTeamOccupancy(attacker);
+        long occupancy = getOccupancy();
+
+        if((Attacks.knightAttacks(square) & attackers & bitboards[ChessPiece.PieceType.KNIGHT.ordinal()]) != 0){
+            return true;
+        }
+        if((Attacks.kingAttacks(square) & attackers & bitboards[ChessPiece.PieceType.KING.ordinal()]) != 0) return true;
+        // A pawn attacks this square from the squares a defending pawn here would attack
+        ChessGame.TeamColor defender = attacker == ChessGame.TeamColor.WHITE ?
+                ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        if((Attacks.pawnAttacks(defender, square) & attackers & bitboards[ChessPiece.PieceType.PAWN.ordinal()]) != 0){
+            return true;
+        }
+
+        long queens = bitboards[ChessPiece.PieceType.QUEEN.ordinal()];
+        long straightSliders = attackers & (bitboards[ChessPiece.PieceType.ROOK.ordinal()] | queens);
+        if(straightSliders != 0 && (Attacks.rookAttacks(square, occupancy) & straightSliders) != 0) return true;
+        long diagonalSliders = attackers & (bitboards[ChessPiece.PieceType.BISHOP.ordinal()] | queens);
+        return diagonalSliders != 0 && (Attacks.bishopAttacks(square, occupancy) & diagonalSliders) != 0;
+    }
+
+    /**
+     * Finds the type of the piece on a square by checking each of the piece type bitboards
+     *
+     * @param square The bitboard index of the square
+     * @return The type of the piece on that square, or null if the square is empty
+     */
+    ChessPiece.PieceType pieceTypeAt(int square) {
+        long mask = 1L << square;
+        for(int i = 0; i < PIECE_TYPES.length; ++i){
+            if((bitboards[i] & mask) != 0) return PIECE_TYPES[i];
+        }
+        return null;
+    }
+
+    /**
+     * @param square The bitboard index of the square
+     * @return The team of the piece on that square, or null if the square is empty
+     */
+    ChessGame.TeamColor teamAt(int square) {
+        long mask = 1L << square;
+        if((bitboards[TEAM_OFFSET] & mask) != 0) return TEAM_COLORS[0];
+        if((bitboards[TEAM_OFFSET + 1] & mask) != 0) return TEAM_COLORS[1];
+        return null;
+    }
+
+    /**
+     * Puts a piece on an empty square. Unlike addPiece() this does not clear the square first.
+     */
+    void placePiece(int square, ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        long mask = 1L << square;
+        bitboards[type.ordinal()] |= mask;
+        bitboards[TEAM_OFFSET + color.ordinal()] |= mask;
+    }
+
+    /**
+     * Removes whatever is on a square from every bitboard
+     */
+    void clearSquare(int square) {
+        long keep = ~(1L << square);
+        for(int i = 0; i < NUM_BITBOARDS; ++i){
+            bitboards[i] &= keep;
+        }
+    }
+
+    /**
+     * @return The bitboard index (0 for a1 through 63 for h8) of a position
+     */
+    static int toSquare(ChessPosition position) {
+        return position.getSquare();
+    }
+
+    /**
+     * @return The position of a bitboard index (0 for a1 through 63 for h8)
+     */
+    static ChessPosition toPosition(int square) {
+        return ChessPosition.of(square);
     }
 
     /**
@@ -60,47 +190,47 @@ public class ChessBoard {
     public void resetBoard() {
         // Pawns
         for(int i = 1; i <= 8; ++i){
-            addPiece(new ChessPosition(2, i), new ChessPiece(
+            addPiece(ChessPosition.of(2, i), ChessPiece.of(
                     ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-            addPiece(new ChessPosition(7, i), new ChessPiece(
+            addPiece(ChessPosition.of(7, i), ChessPiece.of(
                     ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
         }
         // Knights
-        addPiece(new ChessPosition(1, 2), new ChessPiece(
+        addPiece(ChessPosition.of(1, 2), ChessPiece.of(
                 ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(1, 7), new ChessPiece(
+        addPiece(ChessPosition.of(1, 7), ChessPiece.of(
                 ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(8, 2), new ChessPiece(
+        addPiece(ChessPosition.of(8, 2), ChessPiece.of(
                 ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(8, 7), new ChessPiece(
+        addPiece(ChessPosition.of(8, 7), ChessPiece.of(
                 ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
         // Bishops
-        addPiece(new ChessPosition(1, 3), new ChessPiece(
+        addPiece(ChessPosition.of(1, 3), ChessPiece.of(
                 ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(1, 6), new ChessPiece(
+        addPiece(ChessPosition.of(1, 6), ChessPiece.of(
                 ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(8, 3), new ChessPiece(
+        addPiece(ChessPosition.of(8, 3), ChessPiece.of(
                 ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(8, 6), new ChessPiece(
+        addPiece(ChessPosition.of(8, 6), ChessPiece.of(
                 ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
         // Rooks
-        addPiece(new ChessPosition(1, 1), new ChessPiece(
+        addPiece(ChessPosition.of(1, 1), ChessPiece.of(
                 ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
-        addPiece(new ChessPosition(1, 8), new ChessPiece(
+        addPiece(ChessPosition.of(1, 8), ChessPiece.of(
                 ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
-        addPiece(new ChessPosition(8, 1), new ChessPiece(
+        addPiece(ChessPosition.of(8, 1), ChessPiece.of(
                 ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
-        addPiece(new ChessPosition(8, 8), new ChessPiece(
+        addPiece(ChessPosition.of(8, 8), ChessPiece.of(
                 ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
         // Queens
-        addPiece(new ChessPosition(1, 4), new ChessPiece(
+        addPiece(ChessPosition.of(1, 4), ChessPiece.of(
                 ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
-        addPiece(new ChessPosition(8, 4), new ChessPiece(
+        addPiece(ChessPosition.of(8, 4), ChessPiece.of(
                 ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
         // Kings
-        addPiece(new ChessPosition(1, 5), new ChessPiece(
+        addPiece(ChessPosition.of(1, 5), ChessPiece.of(
                 ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
-        addPiece(new ChessPosition(8, 5), new ChessPiece(
+        addPiece(ChessPosition.of(8, 5), ChessPiece.of(
                 ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
 
         return;
@@ -128,7 +258,7 @@ public class ChessBoard {
         for (int i = 8; i >= 1; --i) {
             for (int j = 1; j <= 8; ++j) {
                 bob.append('|');
-                ChessPiece piece = getPiece(new ChessPosition(i, j));
+                ChessPiece piece = getPiece(ChessPosition.of(i, j));
                 if(piece == null) bob.append(' ');
                 else{
                     if(piece.getTeamColor() == ChessGame.TeamColor.WHITE){
@@ -149,11 +279,11 @@ public class ChessBoard {
             return false;
         }
         ChessBoard that = (ChessBoard) o;
-        return Objects.deepEquals(squares, that.squares);
+        return Arrays.equals(bitboards, that.bitboards);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(squares);
+        return Arrays.hashCode(bitboards);
     }
 }
@@ -2,6 +2,7 @@ package chess;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * For a class that can manage a chess game, making moves on a board
@@ -12,30 +13,85 @@ import java.util.Collection;
 public class ChessGame {
     TeamColor teamTurn;
     ChessBoard boardState;
-    ArrayList<ChessPosition> whitePieceSquares, blackPieceSquares;
-    ChessPosition enPassantablePawnPosition;
+    PieceList whitePieceSquares, blackPieceSquares;
+    // The square a pawn that just double moved passed over, where an enemy pawn could capture it en passant
+    ChessPosition enPassantTarget;
+    ChessPosition whiteKingPosition, blackKingPosition;
+    // Packed Castling rights
+    int castlingRights;
+    long zobristKey;
+    // White's Evaluation scores and the game phase, kept in step as pieces are placed and removed
+    int middlegameScore, endgameScore, gamePhase;
+    transient MoveGenerationMode generationMode = MoveGenerationMode.LEGAL;
+    transient ValidMovesCache movesCache = ValidMovesCache.SHARED;
+    // Checked against the Zobrist key before use, since Gson leaves it as it was after construction
+    transient GameStatus cachedStatus;
 
     public ChessGame() {
         teamTurn = TeamColor.WHITE;
-        whitePieceSquares = new ArrayList<>(16);
-        blackPieceSquares = new ArrayList<>(16);
+        whitePieceSquares = new PieceList();
+        blackPieceSquares = new PieceList();
         setBoard(new ChessBoard());
         resetGame();
-        enPassantablePawnPosition = null;
+        enPassantTarget = null;
+    }
+
+    // Copy constructor. The copy shares nothing mutable with the original, so each can be played on its own thread.
+    public ChessGame(ChessGame original) {
+        teamTurn = original.teamTurn;
+        boardState = new ChessBoard(original.boardState);
+        whitePieceSquares = new PieceList(original.whitePieceSquares);
+        blackPieceSquares = new PieceList(original.blackPieceSquares);
+        enPassantTarget = original.enPassantTarget;
+        whiteKingPosition = original.whiteKingPosition;
+        blackKingPosition = original.blackKingPosition;
+        castlingRights = original.castlingRights;
+        zobristKey = original.zobristKey;
+        middlegameScore = original.middlegameScore;
+        endgameScore = original.endgameScore;
+        gamePhase = original.gamePhase;
+        generationMode = original.generationMode;
+        movesCache = original.movesCache;
     }
 
     /**
      * @return List of squares containing active white pieces
      */
     public ArrayList<ChessPosition> getWhitePieceSquares() {
-        return whitePieceSquares;
+        return new ArrayList<>(whitePieceSquares.asList());
     }
 
     /**
      * @return List of squares containing active black pieces
      */
     public ArrayList<ChessPosition> getBlackPieceSquares() {
-        return blackPieceSquares;
+        return new ArrayList<>(blackPieceSquares.asList());
+    }
+
+    /**
+     * @return Read-only list of squares containing active white pieces, which follows the game as it changes without
+     * being copied
+     */
+    public List<ChessPosition> whitePieceSquaresView() {
+        return whitePieceSquares.asList();
+    }
+
+    /**
+     * @return Read-only list of squares containing active black pieces, which follows the game as it changes without
+     * being copied
+     */
+    public List<ChessPosition> blackPieceSquaresView() {
+        return blackPieceSquares.asList();
+    }
+
+    /**
+     * Gets the square of a team's king. This is tracked as pieces move rather than searched for, so it costs nothing.
+     *
+     * @param color which team's king to find
+     * @return The position of that team's king, or null if it has no king on the board
+     */
+    public ChessPosition getKingPosition(TeamColor color) {
+        return color == TeamColor.WHITE ? whiteKingPosition : blackKingPosition;
     }
 
     /**
@@ -51,9 +107,55 @@ public class ChessGame {
      * @param team the team whose turn it is
      */
     public void setTeamTurn(TeamColor team) {
+        if(team != teamTurn) zobristKey ^= Zobrist.BLACK_TO_MOVE;
         teamTurn = team;
     }
 
+    /**
+     * @return The square a pawn that just double moved passed over, or null if the last move wasn't a double move
+     */
+    public ChessPosition getEnPassantTarget() {
+        return enPassantTarget;
+    }
+
+    /**
+     * Whether a team may still castle to one side: its king and that rook haven't moved, and the rook hasn't been
+     * captured. Whether the castle is legal right now also depends on the squares between and around them.
+     *
+     * @param color which team to ask about
+     * @param kingside true for castling toward the h file, false for toward the a file
+     * @return True if the team still holds that castling right
+     */
+    public boolean hasCastlingRight(TeamColor color, boolean kingside) {
+        return (castlingRights & Castling.right(color, kingside)) != 0;
+    }
+
+    /**
+     * Gets the Zobrist key of the current position, which covers the pieces, the side to move, the castling rights
+     * and any possible en passant capture. It is updated incrementally on every move, so reading it is free.
+     * <p>
+     * Changes made directly to the board returned by getBoard() aren't seen until setBoard() is called.
+     *
+     * @return The 64-bit position key
+     */
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * Scores the position with material and piece-square tables, blended between middlegame and endgame values by
+     * how much material is left. The scores are updated by each piece placed or removed as moves are made, so this
+     * costs a multiply and a divide rather than a walk over the board.
+     * <p>
+     * Changes made directly to the board returned by getBoard() aren't seen until setBoard() is called.
+     *
+     * @return The score in centipawns from the side to move's point of view
+     */
+    public int evaluate() {
+        int score = Evaluation.taper(middlegameScore, endgameScore, gamePhase);
+        return teamTurn == TeamColor.WHITE ? score : -score;
+    }
+
     /**
      * Enum identifying the 2 possible teams in a chess game
      */
@@ -62,6 +164,42 @@ public class ChessGame {
         BLACK
     }
 
+    /**
+     * How validMoves() decides which moves are legal
+     */
+    public enum MoveGenerationMode {
+        /** Generate only legal moves directly with MoveGenerator */
+        LEGAL,
+        /**
+         * Generate pseudo-legal moves with ChessPiece.pieceMoves() and keep the ones that don't leave the king in
+         * check when played out. This is much slower, and is kept for debugging and verifying MoveGenerator.
+         */
+        TRIAL
+    }
+
+    /**
+     * @return How this game decides which moves are legal
+     */
+    public MoveGenerationMode getMoveGenerationMode() {
+        return generationMode;
+    }
+
+    /**
+     * @param mode How this game should decide which moves are legal
+     */
+    public void setMoveGenerationMode(MoveGenerationMode mode) {
+        generationMode = mode;
+    }
+
+    /**
+     * Sets where validMoves() remembers its results. Games share ValidMovesCache.SHARED by default.
+     *
+     * @param cache The cache to use, or null to always generate moves
+     */
+    public void setValidMovesCache(ValidMovesCache cache) {
+        movesCache = cache;
+    }
+
     /**
      * Gets a valid moves for a piece at the given location
      *
@@ -72,38 +210,78 @@ public class ChessGame {
     public Collection<ChessMove> validMoves(ChessPosition startPosition) {
         ChessPiece currPiece = boardState.getPiece(startPosition);
         if(currPiece == null) return null;
-        if(currPiece.getPieceType() == ChessPiece.PieceType.PAWN && enPassantablePawnPosition != null){
-            if(startPosition.getRow() == enPassantablePawnPosition.getRow()){
-                int dir_ind = startPosition.getColumn() - enPassantablePawnPosition.getColumn();
-                if(dir_ind == 1) currPiece.setEnPasLeft(true);
-                if(dir_ind == -1) currPiece.setEnPasRight(true);
+        TeamColor color = currPiece.getTeamColor();
+        ArrayList<ChessMove> validMoves = new ArrayList<>();
+        if(generationMode == MoveGenerationMode.LEGAL){
+            int square = ChessBoard.toSquare(startPosition);
+            if(movesCache != null){
+                Collection<ChessMove> cached = movesCache.get(this, square);
+                if(cached != null) return cached;
             }
+            MoveList packed = MoveStack.scratch();
+            MoveGenerator.generateLegalMoves(this, color, 1L << square, packed);
+            if(movesCache != null) movesCache.put(this, square, packed);
+            for(int i = 0; i < packed.size(); ++i) validMoves.add(PackedMove.toChessMove(packed.get(i)));
+            return validMoves;
+        }
+        for(ChessMove cm : pseudoLegalMoves(startPosition, currPiece)){
+            int undo = doMove(cm);
+            if(!isInCheck(color)) validMoves.add(cm);
+            undoMove(cm, undo);
         }
-        Collection<ChessMove> moves  = new ArrayList<>(
-                boardState.getPiece(startPosition).pieceMoves(boardState, startPosition
-                ));
+        return validMoves;
+    }
+
+    /**
+     * Gets every valid move for all the pieces of a team
+     *
+     * @param team the team to get valid moves for
+     * @return Collection of valid moves, which is empty if the team can't move
+     */
+    public Collection<ChessMove> validTeamMoves(TeamColor team) {
         ArrayList<ChessMove> validMoves = new ArrayList<>();
-        ChessBoard origBoardState = new ChessBoard(boardState);
-        for(ChessMove cm : moves){
-            try {
-                makeMove(cm);
-                validMoves.add(cm);
-                changeTeamTurn(); // Corrects for makeMove() auto changing team turn if it succeeds
-            }catch(InvalidMoveException e){
-                if(e.getMessage().equals("It's not this team's turn")){
-                    changeTeamTurn();
-                    try{
-                        makeMove(cm);
-                        validMoves.add(cm);
-                        changeTeamTurn(); // Corrects for makeMove() auto changing team turn if it succeeds
-                    } catch (InvalidMoveException ex) {
-                        //System.out.print(ex.getMessage());
-                    }
+        if(generationMode == MoveGenerationMode.LEGAL){
+            MoveGenerator.generateLegalMoves(this, team, validMoves);
+            return validMoves;
+        }
+        for(ChessPosition p : new ArrayList<>(getTeamPieceSquares(team).asList())){
+            validMoves.addAll(validMoves(p));
+        }
+        return validMoves;
+    }
+
+    /**
+     * Gets the moves a piece could make if leaving its own king in check were allowed, including en passant captures
+     * of the pawn that just double moved and castles that don't start in or pass through check
+     *
+     * @param startPosition the square of the piece to get moves for
+     * @param currPiece the piece on startPosition
+     * @return Collection of pseudo-legal moves
+     */
+    private Collection<ChessMove> pseudoLegalMoves(ChessPosition startPosition, ChessPiece currPiece) {
+        Collection<ChessMove> moves = currPiece.pieceMoves(boardState, startPosition, enPassantTarget);
+        if(currPiece.getPieceType() == ChessPiece.PieceType.KING){
+            TeamColor color = currPiece.getTeamColor();
+            TeamColor enemy = color == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+            int home = Castling.kingHome(color);
+            if(ChessBoard.toSquare(startPosition) == home && !boardState.isSquareAttacked(startPosition, enemy)){
+                // The king's end square is tested by the caller like any other move. Only the team's own rook
+                // can castle, even if an enemy rook has reached the corner without the rights being cleared.
+                long rooks = boardState.getPieces(color, ChessPiece.PieceType.ROOK);
+                if(hasCastlingRight(color, true) && (rooks & (1L << (home + 3))) != 0 &&
+                        boardState.teamAt(home + 1) == null && boardState.teamAt(home + 2) == null &&
+                        !boardState.isSquareAttacked(ChessPosition.of(home + 1), enemy)){
+                    moves.add(new ChessMove(startPosition, ChessPosition.of(home + 2), null));
+                }
+                if(hasCastlingRight(color, false) && (rooks & (1L << (home - 4))) != 0 &&
+                        boardState.teamAt(home - 1) == null && boardState.teamAt(home - 2) == null &&
+                        boardState.teamAt(home - 3) == null &&
+                        !boardState.isSquareAttacked(ChessPosition.of(home - 1), enemy)){
+                    moves.add(new ChessMove(startPosition, ChessPosition.of(home - 2), null));
                 }
             }
-            setBoard(origBoardState);
         }
-        return validMoves;
+        return moves;
     }
 
     /**
@@ -113,44 +291,131 @@ public class ChessGame {
      * @throws InvalidMoveException if move is invalid
      */
     public void makeMove(ChessMove move) throws InvalidMoveException {
-        ChessPiece.PieceType promotionPiece = move.getPromotionPiece();
-        ChessBoard previousBoardState = boardState;
         ChessPiece pieceToMove = boardState.getPiece(move.getStartPosition());
 
         if(pieceToMove == null) throw new InvalidMoveException("There's no piece on this square to move");
         if(pieceToMove.getTeamColor() != teamTurn) throw new InvalidMoveException("It's not this team's turn");
-        if(pieceToMove.pieceMoves(boardState, move.getStartPosition()).contains(move)){
-            if(boardState.getPiece(move.getEndPosition()) == null && !move.isEnPassant()){
-                boardState.removePiece(move.getStartPosition());
-                if(promotionPiece != null) boardState.addPiece(move.getEndPosition(), new ChessPiece(
-                        pieceToMove.getTeamColor(), promotionPiece
-                ));
-                else boardState.addPiece(move.getEndPosition(), pieceToMove);
-            }
-            else{
-                ChessPiece capturer;
-                if(promotionPiece == null) capturer = new ChessPiece(
-                        pieceToMove.getTeamColor(), pieceToMove.getPieceType());
-                else capturer = new ChessPiece(pieceToMove.getTeamColor(), promotionPiece);
-                if(!move.isEnPassant())
-                    capturePiece(move.getStartPosition(), move.getEndPosition(), capturer);
-                else enPassantCapture(move.getStartPosition(), move.getEndPosition(), capturer);
-            }
-            changeTeamTurn();
 
-            if(isInCheck(pieceToMove.getTeamColor())){
-                boardState = previousBoardState;
-                changeTeamTurn();
+        // Play the generated move rather than the caller's, since only the generated one knows if it's en passant
+        ChessMove legalMove = null;
+        for(ChessMove cm : validMoves(move.getStartPosition())){
+            if(cm.equals(move)) legalMove = cm;
+        }
+        if(legalMove == null){
+            if(pseudoLegalMoves(move.getStartPosition(), pieceToMove).contains(move)){
                 throw new InvalidMoveException("The King is in check after this move is completed!");
-            }else{
-                adjustTeamListAfterMove(move);
-                if(pieceToMove.getPieceType() == ChessPiece.PieceType.PAWN &&
-                        Math.abs(move.getStartPosition().getRow() - move.getEndPosition().getRow()) == 2
-                ){
-                    enPassantablePawnPosition = move.getEndPosition();
-                }else enPassantablePawnPosition = null;
             }
-        } else throw new InvalidMoveException("This move isn't part of the piece's moveset");
+            throw new InvalidMoveException("This move isn't part of the piece's moveset");
+        }
+        doMove(legalMove);
+    }
+
+    /**
+     * Plays a move on the board in place without checking that it is legal. Both team piece lists, the en passant
+     * target, the castling rights and the team turn are updated, and the returned record holds what undoMove() needs to
+     * reverse it.
+     *
+     * @param move a move generated by pieceMoves() for the piece on its start square
+     * @return the packed undo record for this move
+     */
+    public int doMove(ChessMove move) {
+        return doMove(PackedMove.fromChessMove(move, null));
+    }
+
+    /**
+     * Plays a packed move on the board in place without checking that it is legal, exactly like doMove(ChessMove)
+     *
+     * @param move a PackedMove generated for the piece on its start square
+     * @return the packed undo record for this move
+     */
+    public int doMove(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        TeamColor color = boardState.teamAt(from);
+        ChessPiece.PieceType type = boardState.pieceTypeAt(from);
+
+        // An en passant capture takes the pawn beside the start square, on the end square's column
+        int capturedSquare = PackedMove.isEnPassant(move) ? (from & ~7) | (to & 7) : to;
+        TeamColor capturedColor = boardState.teamAt(capturedSquare);
+        ChessPiece.PieceType capturedType = boardState.pieceTypeAt(capturedSquare);
+        int undo = UndoRecord.pack(capturedColor, capturedType, enPassantTarget == null ?
+                UndoRecord.NO_SQUARE : ChessBoard.toSquare(enPassantTarget), teamTurn, castlingRights);
+        zobristKey ^= Zobrist.enPassantKey(this) ^ Zobrist.castlingKey(castlingRights);
+
+        if(capturedType != null){
+            takePiece(capturedSquare, capturedColor, capturedType);
+            getTeamPieceSquares(capturedColor).remove(capturedSquare);
+            if(capturedType == ChessPiece.PieceType.KING) setKingPosition(capturedColor, null);
+        }
+        ChessPiece.PieceType promotion = PackedMove.promotion(move);
+        takePiece(from, color, type);
+        putPiece(to, color, promotion == null ? type : promotion);
+        ChessPosition endPosition = ChessPosition.of(to);
+        getTeamPieceSquares(color).move(from, to);
+        if(type == ChessPiece.PieceType.KING){
+            setKingPosition(color, endPosition);
+            // A king moving two squares is castling, and takes its rook along
+            if(Math.abs(to - from) == 2) moveRook(color, Castling.rookFrom(to), Castling.rookTo(to));
+        }
+        castlingRights = Castling.afterMove(castlingRights, from, to);
+
+        if(type == ChessPiece.PieceType.PAWN && Math.abs(to - from) == 16){
+            enPassantTarget = ChessPosition.of((from + to) / 2);
+        }else enPassantTarget = null;
+        zobristKey ^= Zobrist.enPassantKey(this) ^ Zobrist.castlingKey(castlingRights);
+        setTeamTurn(color == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE);
+        return undo;
+    }
+
+    /**
+     * Reverses a move made by doMove(), restoring any captured piece, the en passant target, the castling rights and
+     * the team turn
+     *
+     * @param move the move that was passed to doMove()
+     * @param undo the record returned by doMove()
+     */
+    public void undoMove(ChessMove move, int undo) {
+        undoMove(PackedMove.fromChessMove(move, null), undo);
+    }
+
+    /**
+     * Reverses a packed move made by doMove(int)
+     *
+     * @param move the move that was passed to doMove()
+     * @param undo the record returned by doMove()
+     */
+    public void undoMove(int move, int undo) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        TeamColor color = boardState.teamAt(to);
+        ChessPiece.PieceType movedType = boardState.pieceTypeAt(to);
+        ChessPiece.PieceType type = PackedMove.isPromotion(move) ? ChessPiece.PieceType.PAWN : movedType;
+        zobristKey ^= Zobrist.enPassantKey(this) ^ Zobrist.castlingKey(castlingRights);
+
+        takePiece(to, color, movedType);
+        putPiece(from, color, type);
+        ChessPosition startPosition = ChessPosition.of(from);
+        getTeamPieceSquares(color).move(to, from);
+        if(type == ChessPiece.PieceType.KING){
+            setKingPosition(color, startPosition);
+            if(Math.abs(to - from) == 2) moveRook(color, Castling.rookTo(to), Castling.rookFrom(to));
+        }
+
+        if(UndoRecord.hasCapture(undo)){
+            int capturedSquare = PackedMove.isEnPassant(move) ? (from & ~7) | (to & 7) : to;
+            ChessPosition capturedPosition = ChessPosition.of(capturedSquare);
+            TeamColor capturedColor = UndoRecord.capturedColor(undo);
+            ChessPiece.PieceType capturedType = UndoRecord.capturedType(undo);
+            putPiece(capturedSquare, capturedColor, capturedType);
+            getTeamPieceSquares(capturedColor).add(capturedSquare);
+            if(capturedType == ChessPiece.PieceType.KING) setKingPosition(capturedColor, capturedPosition);
+        }
+
+        int enPassantSquare = UndoRecord.enPassantSquare(undo);
+        enPassantTarget = enPassantSquare == UndoRecord.NO_SQUARE ? null : ChessPosition.of(enPassantSquare);
+        castlingRights = UndoRecord.castlingRights(undo);
+        zobristKey ^= Zobrist.enPassantKey(this) ^ Zobrist.castlingKey(castlingRights);
+        setTeamTurn(UndoRecord.turn(undo));
     }
 
     /**
@@ -160,21 +425,10 @@ public class ChessGame {
      * @return True if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
-        ArrayList<ChessPosition> otherTeamPositions = teamColor == TeamColor.WHITE ?
-                blackPieceSquares : whitePieceSquares;
-        ChessPiece currPiece;
-        boolean isInCheck = false;
-        final ChessPosition kingPosition = getPiecePosition(teamColor, ChessPiece.PieceType.KING);
-
-        for(ChessPosition p : otherTeamPositions){
-            currPiece = boardState.getPiece(p);
-            if(currPiece == null || currPiece.getTeamColor() == teamColor) continue;
-            Collection<ChessMove> currPieceMoves = currPiece.pieceMoves(boardState, p);
-            for(ChessMove c : currPieceMoves){
-                if(c.getEndPosition().equals(kingPosition)) return true;
-            }
-        }
-        return isInCheck;
+        final ChessPosition kingPosition = getKingPosition(teamColor);
+        if(kingPosition == null) return false;
+        return boardState.isSquareAttacked(kingPosition,
+                teamColor == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE);
     }
 
     /**
@@ -184,7 +438,7 @@ public class ChessGame {
      * @return True if the specified team is in checkmate
      */
     public boolean isInCheckmate(TeamColor teamColor) {
-        return noValidTeamMoves(teamColor) && isInCheck(teamColor);
+        return getOutcome(teamColor) == Outcome.CHECKMATE;
     }
 
     /**
@@ -195,7 +449,70 @@ public class ChessGame {
      * @return True if the specified team is in stalemate, otherwise false
      */
     public boolean isInStalemate(TeamColor teamColor) {
-        return noValidTeamMoves(teamColor) && !isInCheck(teamColor);
+        return getOutcome(teamColor) == Outcome.STALEMATE;
+    }
+
+    /**
+     * Whether a team's game is over, from checking once for check and once for any legal move
+     */
+    public enum Outcome {
+        /** The team has at least one legal move */
+        ONGOING,
+        /** The team is in check and has no legal move */
+        CHECKMATE,
+        /** The team isn't in check but has no legal move */
+        STALEMATE
+    }
+
+    /**
+     * Determines whether the game is over for a team. Unlike calling isInCheckmate() and isInStalemate() in turn,
+     * this works out check and mobility once each, and the mobility test stops at the first legal move it finds.
+     *
+     * @param teamColor which team to check
+     * @return the team's outcome
+     */
+    public Outcome getOutcome(TeamColor teamColor) {
+        GameStatus status = cachedStatus;
+        if(status != null && status.positionKey == zobristKey && status.getSideToMove() == teamColor){
+            return status.getOutcome();
+        }
+        if(!noValidTeamMoves(teamColor)) return Outcome.ONGOING;
+        return isInCheck(teamColor) ? Outcome.CHECKMATE : Outcome.STALEMATE;
+    }
+
+    /**
+     * Gets the status of the side to move: check, legal move count, and checkmate or stalemate. It is worked out with
+     * one king attack test and one move generation, and kept until the position changes, so asking again after the
+     * same move costs nothing.
+     * <p>
+     * Changes made directly to the board returned by getBoard() aren't seen until setBoard() is called.
+     *
+     * @return the status of the current position
+     */
+    public GameStatus getStatus() {
+        GameStatus status = cachedStatus;
+        if(status != null && status.positionKey == zobristKey && status.getSideToMove() == teamTurn) return status;
+        int legalMoveCount;
+        if(generationMode == MoveGenerationMode.TRIAL) legalMoveCount = validTeamMoves(teamTurn).size();
+        else{
+            MoveList moves = MoveStack.scratch();
+            MoveGenerator.generateLegalMoves(this, teamTurn, moves);
+            legalMoveCount = moves.size();
+        }
+        status = new GameStatus(teamTurn, isInCheck(teamTurn), legalMoveCount, zobristKey);
+        cachedStatus = status;
+        return status;
+    }
+
+    /**
+     * Determines if a team has at least one legal move, stopping as soon as one is found
+     *
+     * @param team which team to look for a move for
+     * @return True if the team can move
+     */
+    public boolean hasAnyLegalMove(TeamColor team) {
+        if(generationMode == MoveGenerationMode.TRIAL) return !validTeamMoves(team).isEmpty();
+        return MoveGenerator.hasLegalMove(this, team);
     }
 
     /**
@@ -205,6 +522,8 @@ public class ChessGame {
      */
     public void setBoard(ChessBoard board) {
         boardState = new ChessBoard(board);
+        // No double move has been played on the new board, so no pawn can be taken en passant
+        enPassantTarget = null;
         resetTeamPieceArrays();
         populateTeamPieceArrays();
     }
@@ -214,6 +533,7 @@ public class ChessGame {
      */
     public void resetGame(){
         boardState.resetBoard();
+        enPassantTarget = null;
         resetTeamPieceArrays();
         populateTeamPieceArrays();
         setTeamTurn(TeamColor.WHITE);
@@ -231,18 +551,19 @@ public class ChessGame {
     /**
      * Finds and returns the position of a given piece on the current boardState
      *  Presently this is only used to find the King, so it doesn't need to find more than a single instance. If I end
-     *  up changing that in the future I'll refactor this function.
+     *  up changing that in the future I'll refactor this function. Kings are tracked, so they don't need the scan.
      * @param color The color of the piece to be found
      * @param piece The type of piece to be found
      * @return The ChessPosition of the specified piece.
      *
      */
     public ChessPosition getPiecePosition(TeamColor color, ChessPiece.PieceType piece){
+        if(piece == ChessPiece.PieceType.KING) return getKingPosition(color);
         ChessPiece currPiece;
         ChessPosition currPosition;
         for(int row = 1; row <=8; ++row) {
             for (int col = 1; col <= 8; ++col) {
-                currPosition = new ChessPosition(row, col);
+                currPosition = ChessPosition.of(row, col);
                 currPiece = boardState.getPiece(currPosition);
                 if(currPiece == null) continue;
                 if(currPiece.getTeamColor() == color && currPiece.getPieceType() == piece){
@@ -264,33 +585,37 @@ public class ChessGame {
      * TODO: Remove @param capturer both here and in all calling functions
      */
     public void capturePiece(ChessPosition startPosition, ChessPosition capturePosition, ChessPiece capturer){
-        boardState.removePiece(startPosition);
-        ChessPosition posToRemove = null;
-        ArrayList<ChessPosition> removeList = capturer.getTeamColor() == TeamColor.WHITE ?
-                blackPieceSquares : whitePieceSquares;
-        for (ChessPosition cp : removeList){
-            if(cp.equals(capturePosition)) posToRemove = cp;
+        ChessPiece captured = boardState.getPiece(capturePosition);
+        if(captured != null && captured.getPieceType() == ChessPiece.PieceType.KING){
+            setKingPosition(captured.getTeamColor(), null);
+        }
+        if(capturer.getPieceType() == ChessPiece.PieceType.KING){
+            setKingPosition(capturer.getTeamColor(), capturePosition);
         }
-        removeList.remove(posToRemove);
+        boardState.removePiece(startPosition);
+        PieceList removeList = capturer.getTeamColor() == TeamColor.WHITE ? blackPieceSquares : whitePieceSquares;
+        removeList.remove(ChessBoard.toSquare(capturePosition));
         boardState.addPiece(capturePosition, capturer);
+        zobristKey = Zobrist.hash(this);
+        scorePieces();
     }
 
     /**
-     * Handles the en passant capture of a pawn.
+     * Handles the en passant capture of a pawn. The capturing pawn lands on the square the other pawn passed over.
      */
     public void enPassantCapture(ChessPosition capturerPosition, ChessPosition otherPawnPosition, ChessPiece capturer){
         boardState.removePiece(capturerPosition);
-        ChessPosition posToRemove = null;
-        ArrayList<ChessPosition> removeList = capturer.getTeamColor() == TeamColor.WHITE ?
-                blackPieceSquares : whitePieceSquares;
+        PieceList removeList = capturer.getTeamColor() == TeamColor.WHITE ? blackPieceSquares : whitePieceSquares;
         int adv_inc = (capturer.getTeamColor() == ChessGame.TeamColor.WHITE ? 1 : -1); // Indicates advancement direction
-        for (ChessPosition cp : removeList){
-            if(cp.equals(otherPawnPosition)) posToRemove = cp;
-        }
-        removeList.remove(posToRemove);
+        removeList.remove(ChessBoard.toSquare(otherPawnPosition));
+        boardState.removePiece(otherPawnPosition);
 
-        ChessPosition newPosition = new ChessPosition(otherPawnPosition.getRow() - adv_inc, otherPawnPosition.getColumn());
+        ChessPosition newPosition = ChessPosition.of(otherPawnPosition.getRow() + adv_inc,
+                otherPawnPosition.getColumn());
         boardState.addPiece(newPosition, capturer);
+        if(capturer.getPieceType() == ChessPiece.PieceType.KING) setKingPosition(capturer.getTeamColor(), newPosition);
+        zobristKey = Zobrist.hash(this);
+        scorePieces();
     }
 
     /**
@@ -302,62 +627,144 @@ public class ChessGame {
         ChessPosition startPosition = move.getStartPosition();
         ChessPosition endPosition = move.getEndPosition();
         ChessPiece mover = boardState.getPiece(endPosition);
-        ArrayList<ChessPosition> moveList = mover.getTeamColor() == TeamColor.WHITE ?
-                whitePieceSquares : blackPieceSquares;
+        PieceList moveList = mover.getTeamColor() == TeamColor.WHITE ? whitePieceSquares : blackPieceSquares;
 
-        moveList.remove(startPosition);
-        moveList.add(endPosition);
+        moveList.remove(ChessBoard.toSquare(startPosition));
+        moveList.add(ChessBoard.toSquare(endPosition));
+        zobristKey = Zobrist.hash(this);
+        scorePieces();
+    }
+
+    /**
+     * @param color which team's list to get
+     * @return The list of squares containing active pieces of the given team
+     */
+    private PieceList getTeamPieceSquares(TeamColor color){
+        return color == TeamColor.WHITE ? whitePieceSquares : blackPieceSquares;
+    }
+
+    /**
+     * Puts a piece on an empty square, hashing it into the position key and adding it to the evaluation
+     */
+    private void putPiece(int square, TeamColor color, ChessPiece.PieceType type){
+        boardState.placePiece(square, color, type);
+        zobristKey ^= Zobrist.pieceKey(color, type, square);
+        middlegameScore += Evaluation.middlegame(color, type, square);
+        endgameScore += Evaluation.endgame(color, type, square);
+        gamePhase += Evaluation.phase(type);
+    }
+
+    /**
+     * Takes a known piece off its square, hashing it out of the position key and taking it out of the evaluation
+     */
+    private void takePiece(int square, TeamColor color, ChessPiece.PieceType type){
+        boardState.clearSquare(square);
+        zobristKey ^= Zobrist.pieceKey(color, type, square);
+        middlegameScore -= Evaluation.middlegame(color, type, square);
+        endgameScore -= Evaluation.endgame(color, type, square);
+        gamePhase -= Evaluation.phase(type);
+    }
+
+    /**
+     * Works out the evaluation scores and game phase from every piece on the board
+     */
+    private void scorePieces(){
+        middlegameScore = 0;
+        endgameScore = 0;
+        gamePhase = 0;
+        for(TeamColor color : TeamColor.values()){
+            for(ChessPiece.PieceType type : ChessPiece.PieceType.values()){
+                long pieces = boardState.getPieces(color, type);
+                while(pieces != 0){
+                    int square = Long.numberOfTrailingZeros(pieces);
+                    pieces &= pieces - 1;
+                    middlegameScore += Evaluation.middlegame(color, type, square);
+                    endgameScore += Evaluation.endgame(color, type, square);
+                    gamePhase += Evaluation.phase(type);
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the rook of a castle between its corner and the square the king passed over
+     */
+    private void moveRook(TeamColor color, int from, int to){
+        takePiece(from, color, ChessPiece.PieceType.ROOK);
+        putPiece(to, color, ChessPiece.PieceType.ROOK);
+        getTeamPieceSquares(color).move(from, to);
+    }
+
+    /**
+     * Sets the castling rights, keeping the position key in step
+     */
+    void setCastlingRights(int rights){
+        zobristKey ^= Zobrist.castlingKey(castlingRights) ^ Zobrist.castlingKey(rights);
+        castlingRights = rights;
+    }
+
+    /**
+     * Sets the en passant target square, keeping the position key in step
+     */
+    void setEnPassantTarget(ChessPosition position){
+        zobristKey ^= Zobrist.enPassantKey(this);
+        enPassantTarget = position;
+        zobristKey ^= Zobrist.enPassantKey(this);
+    }
+
+    private void setKingPosition(TeamColor color, ChessPosition position){
+        if(color == TeamColor.WHITE) whiteKingPosition = position;
+        else blackKingPosition = position;
     }
 
     /**
      * Changes which team's turn it is
      */
     public void changeTeamTurn(){
-        if(teamTurn == TeamColor.WHITE) teamTurn = TeamColor.BLACK;
-        else teamTurn = TeamColor.WHITE;
+        setTeamTurn(teamTurn == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE);
     }
 
     /**
      * Determines if the given team has no valid moves.
-     * This is done by iterating through the teamPieceSquares ArrayList and running validMoves() on each piece.
      *
      * @param team which team to check for valid moves. The team tracking list is assumed to only contain positions
      *             which have pieces on them (not null)
      * @return True if the specified team has no valid moves, otherwise false
      */
     public boolean noValidTeamMoves(TeamColor team){
-        final ArrayList<ChessPosition> teamPiecePositions = team == TeamColor.WHITE ?
-                whitePieceSquares : blackPieceSquares;
-        ArrayList<ChessPosition> tPPCopy = new ArrayList<>(teamPiecePositions);
-        for (ChessPosition p : tPPCopy) {
-            if (!validMoves(p).isEmpty()) {
-                return false;
-            }
-        }
-        return true;
+        return !hasAnyLegalMove(team);
     }
 
     /**
-     * Reads the current board state and updates the team piece tracking arrays
+     * Reads the current board state and updates the team piece tracking arrays, the king positions, the castling
+     * rights, the position key and the evaluation. Each side is given the rights its king and rooks still on their home
+     * squares allow.
      */
     public void populateTeamPieceArrays(){
         ChessPiece currPiece;
         for(int i = 1; i <=8; ++i){
             for(int j = 1; j <=8; ++j){
-                ChessPosition posToCheck = new ChessPosition(i,j);
+                ChessPosition posToCheck = ChessPosition.of(i,j);
                 currPiece = boardState.getPiece(posToCheck);
                 if(currPiece == null) continue;
-                if(currPiece.getTeamColor() == TeamColor.WHITE) whitePieceSquares.add(posToCheck);
-                else blackPieceSquares.add(posToCheck);
+                getTeamPieceSquares(currPiece.getTeamColor()).add(ChessBoard.toSquare(posToCheck));
+                if(currPiece.getPieceType() == ChessPiece.PieceType.KING){
+                    setKingPosition(currPiece.getTeamColor(), posToCheck);
+                }
             }
         }
+        castlingRights = Castling.fromHomeSquares(boardState);
+        zobristKey = Zobrist.hash(this);
+        scorePieces();
     }
 
     /**
-     * Empties the tracking arrays for currently active white and black pieces
+     * Empties the tracking arrays for currently active white and black pieces and forgets both king positions
      */
     public void resetTeamPieceArrays(){
         whitePieceSquares.clear();
         blackPieceSquares.clear();
+        whiteKingPosition = null;
+        blackKingPosition = null;
     }
 }
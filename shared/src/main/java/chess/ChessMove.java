@@ -72,7 +72,10 @@ public class ChessMove {
 
     @Override
     public int hashCode() {
-        return Objects.hash(startPosition, endPosition, promotionPiece);
+        // Same value as Objects.hash(startPosition, endPosition, promotionPiece), without the varargs array
+        int result = 31 + Objects.hashCode(startPosition);
+        result = 31 * result + Objects.hashCode(endPosition);
+        return 31 * result + Objects.hashCode(promotionPiece);
     }
 
     @Override
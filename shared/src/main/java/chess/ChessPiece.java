@@ -13,27 +13,46 @@ import java.util.Objects;
 /**
  * Represents a single chess piece
  * <p>
+ * Pieces are immutable, so the twelve returned by of() are shared by every board and game. En passant is part of the
+ * game's state rather than the pawn's, and is passed to pieceMoves() as the square a capturing pawn would land on.
+ * <p>
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
 public class ChessPiece {
+    private static final ChessPiece[] PIECES = new ChessPiece[12];
+
+    static {
+        for(ChessGame.TeamColor color : ChessGame.TeamColor.values()){
+            for(PieceType type : PieceType.values()){
+                PIECES[color.ordinal() * 6 + type.ordinal()] = new ChessPiece(color, type);
+            }
+        }
+    }
 
     private final ChessGame.TeamColor pieceColor;
     private final PieceType type;
-    private boolean canEnPasRight, canEnPasLeft;
 
     public ChessPiece(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
         this.pieceColor = pieceColor;
         this.type = type;
-        canEnPasRight = false;
-        canEnPasLeft = false;
     }
 
     public ChessPiece(ChessPiece original){
         this.pieceColor = original.pieceColor;
         this.type = original.type;
-        this.canEnPasRight = original.canEnPasRight;
-        this.canEnPasLeft = original.canEnPasLeft;
+    }
+
+    /**
+     * Gets the shared instance of a piece. Prefer this to the constructor, which only exists for callers that need
+     * a piece of their own.
+     *
+     * @param pieceColor The piece's team
+     * @param type The piece's type
+     * @return The one shared piece of that team and type
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, PieceType type) {
+        return PIECES[pieceColor.ordinal() * 6 + type.ordinal()];
     }
 
     /**
@@ -70,236 +89,110 @@ public class ChessPiece {
      * @return Collection of valid moves
      */
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        ArrayList<ChessMove> move_list = new ArrayList<>();
-        if(type == PieceType.BISHOP || type == PieceType.QUEEN){
-            int row, col;
-            ChessPosition end_position;
-
-            // Check all four diagonal directions:
-            // Up-Right
-            row = myPosition.getRow() + 1;
-            col = myPosition.getColumn() + 1;
-            while(row <= 8 && col <= 8){
-                end_position = new ChessPosition(row, col);
-                ChessPiece curr_occupant = board.getPiece(end_position);
-                if(curr_occupant != null) {
-                    if(curr_occupant.pieceColor != this.pieceColor){
-                        move_list.add(new ChessMove(myPosition, end_position, null));
-                    }
-                    break;
-                }
-                move_list.add(new ChessMove(myPosition, end_position, null));
-                row++;
-                col++;
-            }
-
-            // Up-Left
-            row = myPosition.getRow() + 1;
-            col = myPosition.getColumn() - 1;
-            while(row <= 8 && col >= 1){
-                end_position = new ChessPosition(row, col);
-                ChessPiece curr_occupant = board.getPiece(end_position);
-                if(curr_occupant != null) {
-                    if(curr_occupant.pieceColor != this.pieceColor){
-                        move_list.add(new ChessMove(myPosition, end_position, null));
-                    }
-                    break;
-                }
-                move_list.add(new ChessMove(myPosition, end_position, null));
-                row++;
-                col--;
-            }
-
-            // Down-Left
-            row = myPosition.getRow() - 1;
-            col = myPosition.getColumn() - 1;
-            while(row >= 1 && col >= 1){
-                end_position = new ChessPosition(row, col);
-                ChessPiece curr_occupant = board.getPiece(end_position);
-                if(curr_occupant != null) {
-                    if(curr_occupant.pieceColor != this.pieceColor){
-                        move_list.add(new ChessMove(myPosition, end_position, null));
-                    }
-                    break;
-                }
-                move_list.add(new ChessMove(myPosition, end_position, null));
-                row--;
-                col--;
-            }
-
-            // Down-Right
-            row = myPosition.getRow() - 1;
-            col = myPosition.getColumn() + 1;
-            while(row >= 1 && col <= 8){
-                end_position = new ChessPosition(row, col);
-                ChessPiece curr_occupant = board.getPiece(end_position);
-                if(curr_occupant != null) {
-                    if(curr_occupant.pieceColor != this.pieceColor){
-                        move_list.add(new ChessMove(myPosition, end_position, null));
-                    }
-                    break;
-                }
-                move_list.add(new ChessMove(myPosition, end_position, null));
-                row--;
-                col++;
-            }
-        }
-        if(type == PieceType.ROOK || type == PieceType.QUEEN){
-            int row, col;
-            ChessPosition end_position;
-
-            // Check all four directions:
-            // Right
-            row = myPosition.getRow();
-            col = myPosition.getColumn() + 1;
-            while(col <= 8){
-                end_position = new ChessPosition(row, col);
-                ChessPiece curr_occupant = board.getPiece(end_position);
-                if(curr_occupant != null) {
-                    if(curr_occupant.pieceColor != this.pieceColor){
-                        move_list.add(new ChessMove(myPosition, end_position, null));
-                    }
-                    break;
-                }
-                move_list.add(new ChessMove(myPosition, end_position, null));
-                col++;
-            }
+        return pieceMoves(board, myPosition, null);
+    }
 
-            // Up
-            row = myPosition.getRow() + 1;
-            col = myPosition.getColumn();
-            while(row <= 8){
-                end_position = new ChessPosition(row, col);
-                ChessPiece curr_occupant = board.getPiece(end_position);
-                if(curr_occupant != null) {
-                    if(curr_occupant.pieceColor != this.pieceColor){
-                        move_list.add(new ChessMove(myPosition, end_position, null));
-                    }
-                    break;
-                }
-                move_list.add(new ChessMove(myPosition, end_position, null));
-                row++;
-            }
+    /**
+     * Calculates all the positions a chess piece can move to, including an en passant capture onto the given target
+     * square. Does not take into account moves that are illegal due to leaving the king in danger.
+     *
+     * @param enPassantTarget The square a pawn that just double moved passed over, or null
+     * @return Collection of valid moves
+     */
+    public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition,
+                                            ChessPosition enPassantTarget) {
+        return pieceMoves(board, myPosition, enPassantTarget, false);
+    }
 
-            // Left
-            row = myPosition.getRow();
-            col = myPosition.getColumn() - 1;
-            while(col >= 1){
-                end_position = new ChessPosition(row, col);
-                ChessPiece curr_occupant = board.getPiece(end_position);
-                if(curr_occupant != null) {
-                    if(curr_occupant.pieceColor != this.pieceColor){
-                        move_list.add(new ChessMove(myPosition, end_position, null));
-                    }
-                    break;
-                }
-                move_list.add(new ChessMove(myPosition, end_position, null));
-                col--;
-            }
+    /**
+     * Calculates only the captures and promotions a chess piece can make, en passant included. These are the moves
+     * a quiescence search looks at. Does not take into account moves that are illegal due to leaving the king in
+     * danger.
+     *
+     * @param enPassantTarget The square a pawn that just double moved passed over, or null
+     * @return Collection of valid captures and promotions
+     */
+    public Collection<ChessMove> pieceCaptures(ChessBoard board, ChessPosition myPosition,
+                                               ChessPosition enPassantTarget) {
+        return pieceMoves(board, myPosition, enPassantTarget, true);
+    }
 
-            // Down
-            row = myPosition.getRow() - 1;
-            col = myPosition.getColumn();
-            while(row >= 1){
-                end_position = new ChessPosition(row, col);
-                ChessPiece curr_occupant = board.getPiece(end_position);
-                if(curr_occupant != null) {
-                    if(curr_occupant.pieceColor != this.pieceColor){
-                        move_list.add(new ChessMove(myPosition, end_position, null));
-                    }
-                    break;
-                }
-                move_list.add(new ChessMove(myPosition, end_position, null));
-                row--;
-            }
-        }
-        if(type == PieceType.KING){
-            int row, col;
-            ChessPosition end_position;
-            for(int i = -1; i <= 1; i++) {
-                for (int j = -1; j <= 1; j ++) {
-                    row = myPosition.getRow() + i;
-                    col = myPosition.getColumn() + j;
-                    if(row > 8 || row < 1 || col > 8 || col < 1) continue;
-                    end_position = new ChessPosition(row, col);
-                    ChessPiece curr_occupant = board.getPiece(end_position);
-                    if(curr_occupant != null) {
-                        if(curr_occupant.pieceColor != this.pieceColor){
-                            move_list.add(new ChessMove(myPosition, end_position, null));
-                        }
-                        continue;
-                    }
-                    move_list.add(new ChessMove(myPosition, end_position, null));
-                }
+    private Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition,
+                                             ChessPosition enPassantTarget, boolean capturesOnly) {
+        ArrayList<ChessMove> move_list = new ArrayList<>();
+        // Sliders, kings and knights only capture onto enemy squares, where quiet moves go to empty ones too
+        long allowed = capturesOnly ? board.getTeamOccupancy(pieceColor == ChessGame.TeamColor.WHITE ?
+                ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE) : ~board.getTeamOccupancy(pieceColor);
+        if(type == PieceType.BISHOP || type == PieceType.ROOK || type == PieceType.QUEEN){
+            int square = ChessBoard.toSquare(myPosition);
+            long occupancy = board.getOccupancy();
+            long targets = switch(type){
+                case BISHOP -> Attacks.bishopAttacks(square, occupancy);
+                case ROOK -> Attacks.rookAttacks(square, occupancy);
+                default -> Attacks.queenAttacks(square, occupancy);
+            };
+            targets &= allowed;
+            while(targets != 0){
+                move_list.add(new ChessMove(myPosition, ChessPosition.of(Long.numberOfTrailingZeros(targets)), null));
+                targets &= targets - 1;
             }
         }
-        if(type == PieceType.KNIGHT){
-            int row, col;
-            ChessPosition end_position;
-            int[][] direction_arr = {{1, 2},{2, 1},{2, -1},{1, -2},{-1, -2},{-2, -1},{-2, 1},{-1, 2}};
-            for(int[] i : direction_arr) {
-                row = myPosition.getRow() + i[0];
-                col = myPosition.getColumn() + i[1];
-                if(row > 8 || row < 1 || col > 8 || col < 1) continue;
-                end_position = new ChessPosition(row, col);
-                ChessPiece curr_occupant = board.getPiece(end_position);
-                if(curr_occupant != null) {
-                    if(curr_occupant.pieceColor != this.pieceColor){
-                        move_list.add(new ChessMove(myPosition, end_position, null));
-                    }
-                    continue;
-                }
-                move_list.add(new ChessMove(myPosition, end_position, null));
+        if(type == PieceType.KING || type == PieceType.KNIGHT){
+            int square = ChessBoard.toSquare(myPosition);
+            long targets = (type == PieceType.KING ? Attacks.kingAttacks(square) : Attacks.knightAttacks(square)) &
+                    allowed;
+            while(targets != 0){
+                move_list.add(new ChessMove(myPosition, ChessPosition.of(Long.numberOfTrailingZeros(targets)), null));
+                targets &= targets - 1;
             }
         }
         if(type == PieceType.PAWN){
             // TODO: Condense this code. Right now it seems way too long and wordy
             boolean on_home_square = (myPosition.getRow() == (this.pieceColor == ChessGame.TeamColor.WHITE ? 2 : 7));
             boolean ready_to_promote = (myPosition.getRow() == (this.pieceColor == ChessGame.TeamColor.WHITE ? 7 : 2));
-            boolean en_passant_row = (myPosition.getRow() == (this.pieceColor == ChessGame.TeamColor.WHITE ? 5 : 4));
 
             // Identifies squares to check for capture potential and adds them if the capture is valid
             int adv_inc = (this.pieceColor == ChessGame.TeamColor.WHITE ? 1 : -1); // Indicates advancement direction
 
-            if(myPosition.getColumn() < 8){
-                ChessPosition right_capture_square = new ChessPosition(
-                        myPosition.getRow() + adv_inc, myPosition.getColumn() + 1);
-                ChessPiece right_capture_piece = board.getPiece(right_capture_square);
-                if(right_capture_piece != null && right_capture_piece.pieceColor != this.pieceColor) {
-                    if(ready_to_promote) addPromotionMoves(move_list, myPosition, right_capture_square);
-                    else move_list.add(new ChessMove(myPosition, right_capture_square, null));
-                }
-                if(canEnPasRight){
-                    ChessMove enPasMove = new ChessMove(myPosition, right_capture_square, null);
-                    enPasMove.setIsEnPassant(true);
-                    move_list.add(enPasMove);
-                }
+            // Each diagonal the pawn attacks is either a capture or, onto the target square, an en passant move
+            int square = ChessBoard.toSquare(myPosition);
+            ChessGame.TeamColor enemy = pieceColor == ChessGame.TeamColor.WHITE ?
+                    ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+            long enemies = board.getTeamOccupancy(enemy);
+            int enPassantSquare = -1;
+            // The pawn that passed over the target stands one row past it, as seen from this pawn
+            if(enPassantTarget != null && (board.getPieces(enemy, PieceType.PAWN) &
+                    (1L << (ChessBoard.toSquare(enPassantTarget) - 8 * adv_inc))) != 0){
+                enPassantSquare = ChessBoard.toSquare(enPassantTarget);
             }
-
-            if(myPosition.getColumn() > 1){
-                ChessPosition left_capture_square = new ChessPosition(
-                        myPosition.getRow() + adv_inc, myPosition.getColumn() - 1);
-                ChessPiece left_capture_piece = board.getPiece(left_capture_square);
-                if(left_capture_piece != null && left_capture_piece.pieceColor != this.pieceColor){
-                    if(ready_to_promote) addPromotionMoves(move_list, myPosition, left_capture_square);
-                    else move_list.add(new ChessMove(myPosition, left_capture_square, null));
+            long targets = Attacks.pawnAttacks(pieceColor, square);
+            while(targets != 0){
+                int target = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                ChessPosition capture_square = ChessPosition.of(target);
+                if((enemies & (1L << target)) != 0){
+                    if(ready_to_promote) addPromotionMoves(move_list, myPosition, capture_square);
+                    else move_list.add(new ChessMove(myPosition, capture_square, null));
                 }
-                if(canEnPasLeft){
-                    ChessMove enPasMove = new ChessMove(myPosition, left_capture_square, null);
+                if(target == enPassantSquare){
+                    ChessMove enPasMove = new ChessMove(myPosition, capture_square, null);
                     enPasMove.setIsEnPassant(true);
                     move_list.add(enPasMove);
                 }
             }
 
-            // Add single advance square if valid
-            ChessPosition single_adv_square = new ChessPosition(myPosition.getRow() + adv_inc,
-                    myPosition.getColumn());
+            // Add single advance square if valid. Without promoting, a push is a quiet move.
+            if(capturesOnly && !ready_to_promote) return move_list;
+            // A pawn placed on its last row by hand has nowhere to advance to
+            int advance_row = myPosition.getRow() + adv_inc;
+            if(advance_row < 1 || advance_row > 8) return move_list;
+            ChessPosition single_adv_square = ChessPosition.of(advance_row, myPosition.getColumn());
             if(board.getPiece(single_adv_square) == null){
                 if(ready_to_promote) addPromotionMoves(move_list, myPosition, single_adv_square);
                 else move_list.add(new ChessMove(myPosition, single_adv_square, null));
                 // Add double move if on home square
                 if(on_home_square){
-                    ChessPosition double_adv_square = new ChessPosition(myPosition.getRow() + 2 * adv_inc,
+                    ChessPosition double_adv_square = ChessPosition.of(myPosition.getRow() + 2 * adv_inc,
                             myPosition.getColumn());
                     if(board.getPiece(double_adv_square) == null){
                         move_list.add(new ChessMove(myPosition, double_adv_square, null));
@@ -318,20 +211,6 @@ public class ChessPiece {
         move_list.add(new ChessMove(myPosition, captureSquare, PieceType.QUEEN));
     }
 
-    /**
-     * @param b Whether the pawn can capture en passant to the right
-     */
-    public void setEnPasRight(boolean b){
-        canEnPasRight = b;
-    }
-
-    /**
-     * @param b Whether the pawn can capture en passant to the left
-     */
-    public void setEnPasLeft(boolean b){
-        canEnPasLeft = b;
-    }
-
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) {
@@ -1,7 +1,5 @@
 package chess;
 
-import java.util.Objects;
-
 /**
  * Represents a single square position on a chess board
  * <p>
@@ -13,13 +11,49 @@ public class ChessPosition {
     private final int row;
     private final int col;
 
-    private final char[] col_chars = {'a','b','c','d','e','f','g','h'};
+    private static final char[] COLUMN_LETTERS = {'a','b','c','d','e','f','g','h'};
+
+    // One shared instance per square, indexed by getSquare()
+    private static final ChessPosition[] SQUARES = new ChessPosition[64];
+
+    static {
+        for(int square = 0; square < 64; ++square) SQUARES[square] = new ChessPosition(square / 8 + 1, square % 8 + 1);
+    }
 
     public ChessPosition(int row, int col) {
         this.row = row;
         this.col = col;
     }
 
+    /**
+     * Gets the position for a row and column without allocating, for squares on the board. Positions are immutable,
+     * so the shared instance can be used anywhere a new one could.
+     *
+     * @param row The row, 1 to 8 for squares on the board
+     * @param col The column, 1 to 8 for squares on the board
+     * @return The shared position for an on-board square, or a new position otherwise
+     */
+    public static ChessPosition of(int row, int col) {
+        if(row < 1 || row > 8 || col < 1 || col > 8) return new ChessPosition(row, col);
+        return SQUARES[(row - 1) * 8 + col - 1];
+    }
+
+    /**
+     * @param square The square index, from 0 for a1 to 63 for h8
+     * @return The shared position for that square
+     */
+    public static ChessPosition of(int square) {
+        return SQUARES[square];
+    }
+
+    /**
+     * @return The square index of this position, from 0 for a1 across each row to 63 for h8. Only meaningful for
+     * positions on the board.
+     */
+    public int getSquare() {
+        return (row - 1) * 8 + col - 1;
+    }
+
     /**
      * @return which row this position is in
      * 1 codes for the bottom row
@@ -38,7 +72,7 @@ public class ChessPosition {
 
     @Override
     public String toString() {
-        return col_chars[col - 1] + Integer.toString(row);
+        return COLUMN_LETTERS[col - 1] + Integer.toString(row);
     }
 
     @Override
@@ -52,6 +86,7 @@ public class ChessPosition {
 
     @Override
     public int hashCode() {
-        return Objects.hash(row, col);
+        // Same value as Objects.hash(row, col), without boxing both into a new array
+        return 31 * (31 + row) + col;
     }
 }
@@ -0,0 +1,154 @@
+package chess;
+
+/**
+ * Piece values and piece-square tables for a tapered evaluation. Each piece on a square is worth one score in the
+ * middlegame and another in the endgame, and the position's phase, worked out from the pieces still on the board,
+ * blends the two. ChessGame adds and subtracts these scores as pieces are placed and removed, so evaluating a
+ * position never has to walk the board.
+ * <p>
+ * The tables are written from white's side with rank 8 at the top, as they would be drawn, and mirrored for black.
+ * Scores are in centipawns, positive for white.
+ */
+final class Evaluation {
+    /** The phase of the starting position. Fewer pieces move the phase toward 0, the pure endgame. */
+    static final int MAX_PHASE = 24;
+
+    // Indexed by PieceType ordinal: KING, QUEEN, BISHOP, KNIGHT, ROOK, PAWN
+    private static final int[] MIDDLEGAME_VALUES = {0, 900, 330, 320, 500, 100};
+    private static final int[] ENDGAME_VALUES = {0, 950, 320, 300, 520, 120};
+    private static final int[] PHASE_WEIGHTS = {0, 4, 1, 1, 2, 0};
+
+    private static final int[] KING_MIDDLEGAME = {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+             20,  20,   0,   0,   0,   0,  20,  20,
+             20,  30,  10,   0,   0,  10,  30,  20};
+    private static final int[] KING_ENDGAME = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10,   0,   0, -10, -20, -30,
+            -30, -10,  20,  30,  30,  20, -10, -30,
+            -30, -10,  30,  40,  40,  30, -10, -30,
+            -30, -10,  30,  40,  40,  30, -10, -30,
+            -30, -10,  20,  30,  30,  20, -10, -30,
+            -30, -30,   0,   0,   0,   0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50};
+    private static final int[] QUEEN = {
+            -20, -10, -10,  -5,  -5, -10, -10, -20,
+            -10,   0,   0,   0,   0,   0,   0, -10,
+            -10,   0,   5,   5,   5,   5,   0, -10,
+             -5,   0,   5,   5,   5,   5,   0,  -5,
+              0,   0,   5,   5,   5,   5,   0,  -5,
+            -10,   5,   5,   5,   5,   5,   0, -10,
+            -10,   0,   5,   0,   0,   0,   0, -10,
+            -20, -10, -10,  -5,  -5, -10, -10, -20};
+    private static final int[] BISHOP = {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10,   0,   0,   0,   0,   0,   0, -10,
+            -10,   0,   5,  10,  10,   5,   0, -10,
+            -10,   5,   5,  10,  10,   5,   5, -10,
+            -10,   0,  10,  10,  10,  10,   0, -10,
+            -10,  10,  10,  10,  10,  10,  10, -10,
+            -10,   5,   0,   0,   0,   0,   5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20};
+    private static final int[] KNIGHT = {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20,   0,   0,   0,   0, -20, -40,
+            -30,   0,  10,  15,  15,  10,   0, -30,
+            -30,   5,  15,  20,  20,  15,   5, -30,
+            -30,   0,  15,  20,  20,  15,   0, -30,
+            -30,   5,  10,  15,  15,  10,   5, -30,
+            -40, -20,   0,   5,   5,   0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50};
+    private static final int[] ROOK = {
+              0,   0,   0,   0,   0,   0,   0,   0,
+              5,  10,  10,  10,  10,  10,  10,   5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+              0,   0,   0,   5,   5,   0,   0,   0};
+    private static final int[] PAWN_MIDDLEGAME = {
+              0,   0,   0,   0,   0,   0,   0,   0,
+             50,  50,  50,  50,  50,  50,  50,  50,
+             10,  10,  20,  30,  30,  20,  10,  10,
+              5,   5,  10,  25,  25,  10,   5,   5,
+              0,   0,   0,  20,  20,   0,   0,   0,
+              5,  -5, -10,   0,   0, -10,  -5,   5,
+              5,  10,  10, -20, -20,  10,  10,   5,
+              0,   0,   0,   0,   0,   0,   0,   0};
+    // In the endgame a pawn is worth more the closer it is to promoting, wherever it stands on its rank
+    private static final int[] PAWN_ENDGAME = {
+              0,   0,   0,   0,   0,   0,   0,   0,
+             80,  80,  80,  80,  80,  80,  80,  80,
+             50,  50,  50,  50,  50,  50,  50,  50,
+             30,  30,  30,  30,  30,  30,  30,  30,
+             15,  15,  15,  15,  15,  15,  15,  15,
+              5,   5,   5,   5,   5,   5,   5,   5,
+              0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0};
+
+    // Indexed by [6 * TeamColor ordinal + PieceType ordinal][square], already signed for the piece's team
+    private static final int[][] MIDDLEGAME = new int[12][64];
+    private static final int[][] ENDGAME = new int[12][64];
+
+    static {
+        int[][] middlegameTables = {KING_MIDDLEGAME, QUEEN, BISHOP, KNIGHT, ROOK, PAWN_MIDDLEGAME};
+        int[][] endgameTables = {KING_ENDGAME, QUEEN, BISHOP, KNIGHT, ROOK, PAWN_ENDGAME};
+        for(int type = 0; type < 6; ++type){
+            for(int square = 0; square < 64; ++square){
+                // White reads the drawn table upside down, since its rank 1 is the table's last row
+                int white = square ^ 56;
+                MIDDLEGAME[type][square] = MIDDLEGAME_VALUES[type] + middlegameTables[type][white];
+                ENDGAME[type][square] = ENDGAME_VALUES[type] + endgameTables[type][white];
+                MIDDLEGAME[6 + type][square] = -(MIDDLEGAME_VALUES[type] + middlegameTables[type][square]);
+                ENDGAME[6 + type][square] = -(ENDGAME_VALUES[type] + endgameTables[type][square]);
+            }
+        }
+    }
+
+    private Evaluation() {}
+
+    /**
+     * @return What a piece on a square adds to the middlegame score, negative for black
+     */
+    static int middlegame(ChessGame.TeamColor color, ChessPiece.PieceType type, int square) {
+        return MIDDLEGAME[color.ordinal() * 6 + type.ordinal()][square];
+    }
+
+    /**
+     * @return What a piece on a square adds to the endgame score, negative for black
+     */
+    static int endgame(ChessGame.TeamColor color, ChessPiece.PieceType type, int square) {
+        return ENDGAME[color.ordinal() * 6 + type.ordinal()][square];
+    }
+
+    /**
+     * @return A piece's plain middlegame material value, the most capturing one is likely to gain
+     */
+    static int value(ChessPiece.PieceType type) {
+        return MIDDLEGAME_VALUES[type.ordinal()];
+    }
+
+    /**
+     * @return What a piece of this type adds to the game phase
+     */
+    static int phase(ChessPiece.PieceType type) {
+        return PHASE_WEIGHTS[type.ordinal()];
+    }
+
+    /**
+     * Blends the middlegame and endgame scores by phase. Promotions can push the phase past MAX_PHASE, which counts
+     * as a pure middlegame.
+     *
+     * @return The score for white
+     */
+    static int taper(int middlegame, int endgame, int phase) {
+        int weight = Math.min(phase, MAX_PHASE);
+        return (middlegame * weight + endgame * (MAX_PHASE - weight)) / MAX_PHASE;
+    }
+}
@@ -0,0 +1,108 @@
+package chess;
+
+import java.util.Map;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation, the format reference perft counts and test positions are
+ * published in, e.g. "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1".
+ * <p>
+ * The piece placement, side to move, castling and en passant fields are used, and the move counters are ignored. A
+ * FEN without a castling field gets the rights its kings and rooks on their home squares allow.
+ */
+public final class Fen {
+    public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final Map<Character, ChessPiece.PieceType> CHAR_TO_TYPE_MAP = Map.of(
+            'p', ChessPiece.PieceType.PAWN,
+            'n', ChessPiece.PieceType.KNIGHT,
+            'r', ChessPiece.PieceType.ROOK,
+            'q', ChessPiece.PieceType.QUEEN,
+            'k', ChessPiece.PieceType.KING,
+            'b', ChessPiece.PieceType.BISHOP);
+
+    private Fen() {}
+
+    /**
+     * Builds a game from a FEN string
+     *
+     * @param fen The position to load
+     * @return A new game set up in that position
+     * @throws IllegalArgumentException if the string isn't valid FEN
+     */
+    public static ChessGame load(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if(fields.length < 2) throw new IllegalArgumentException("FEN needs at least a board and a side to move");
+
+        ChessBoard board = new ChessBoard();
+        String[] rows = fields[0].split("/");
+        if(rows.length != 8) throw new IllegalArgumentException("FEN board must have 8 rows: " + fields[0]);
+        for(int i = 0; i < 8; ++i){
+            int row = 8 - i;
+            int column = 1;
+            for(char c : rows[i].toCharArray()){
+                if(c >= '1' && c <= '8'){
+                    column += c - '0';
+                    if(column > 9) throw new IllegalArgumentException("Bad FEN row: " + rows[i]);
+                    continue;
+                }
+                ChessPiece.PieceType type = CHAR_TO_TYPE_MAP.get(Character.toLowerCase(c));
+                if(type == null || column > 8) throw new IllegalArgumentException("Bad FEN row: " + rows[i]);
+                ChessGame.TeamColor color = Character.isUpperCase(c) ?
+                        ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+                board.addPiece(ChessPosition.of(row, column), ChessPiece.of(color, type));
+                column++;
+            }
+            // Every row has to account for all 8 files
+            if(column != 9) throw new IllegalArgumentException("Bad FEN row: " + rows[i]);
+        }
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        switch(fields[1]){
+            case "w" -> game.setTeamTurn(ChessGame.TeamColor.WHITE);
+            case "b" -> game.setTeamTurn(ChessGame.TeamColor.BLACK);
+            default -> throw new IllegalArgumentException("Bad side to move: " + fields[1]);
+        }
+        if(fields.length > 2) game.setCastlingRights(Castling.fromFen(fields[2]));
+
+        if(fields.length > 3 && !fields[3].equals("-")){
+            String target = fields[3];
+            // Only a square a double move can pass over, on row 3 or 6, is a valid target
+            if(!target.matches("[a-h][36]")) throw new IllegalArgumentException("Bad en passant square: " + target);
+            game.setEnPassantTarget(ChessPosition.of(target.charAt(1) - '0', target.charAt(0) - 'a' + 1));
+        }
+        return game;
+    }
+
+    /**
+     * Writes a game's position as FEN. The move counters are written as "0 1".
+     *
+     * @param game The game to describe
+     * @return The FEN string for the game's current position
+     */
+    public static String toFen(ChessGame game) {
+        StringBuilder bob = new StringBuilder();
+        ChessBoard board = game.getBoard();
+        for(int row = 8; row >= 1; --row){
+            int empty = 0;
+            for(int column = 1; column <= 8; ++column){
+                ChessPiece piece = board.getPiece(ChessPosition.of(row, column));
+                if(piece == null){
+                    empty++;
+                    continue;
+                }
+                if(empty > 0) bob.append(empty);
+                empty = 0;
+                bob.append(piece);
+            }
+            if(empty > 0) bob.append(empty);
+            if(row > 1) bob.append('/');
+        }
+        bob.append(game.getTeamTurn() == ChessGame.TeamColor.WHITE ? " w " : " b ");
+        bob.append(Castling.toFen(game.castlingRights)).append(' ');
+        ChessPosition enPassantTarget = game.getEnPassantTarget();
+        bob.append(enPassantTarget == null ? "-" : enPassantTarget.toString());
+        bob.append(" 0 1");
+        return bob.toString();
+    }
+}
@@ -0,0 +1,68 @@
+package chess;
+
+/**
+ * Everything a caller usually wants to know about a position after a move: whose turn it is, whether they are in
+ * check, how many legal moves they have, and so whether the game has ended. ChessGame.getStatus() works all of it
+ * out in one pass and keeps the result until the position changes.
+ */
+public final class GameStatus {
+    private final ChessGame.TeamColor sideToMove;
+    private final boolean inCheck;
+    private final int legalMoveCount;
+    // The Zobrist key of the position this status describes
+    final long positionKey;
+
+    GameStatus(ChessGame.TeamColor sideToMove, boolean inCheck, int legalMoveCount, long positionKey) {
+        this.sideToMove = sideToMove;
+        this.inCheck = inCheck;
+        this.legalMoveCount = legalMoveCount;
+        this.positionKey = positionKey;
+    }
+
+    /**
+     * @return The team whose turn it is
+     */
+    public ChessGame.TeamColor getSideToMove() {
+        return sideToMove;
+    }
+
+    /**
+     * @return Whether the side to move is in check
+     */
+    public boolean isInCheck() {
+        return inCheck;
+    }
+
+    /**
+     * @return How many legal moves the side to move has
+     */
+    public int getLegalMoveCount() {
+        return legalMoveCount;
+    }
+
+    public boolean isCheckmate() {
+        return inCheck && legalMoveCount == 0;
+    }
+
+    public boolean isStalemate() {
+        return !inCheck && legalMoveCount == 0;
+    }
+
+    public boolean isGameOver() {
+        return legalMoveCount == 0;
+    }
+
+    /**
+     * @return The same outcome ChessGame.getOutcome() gives for the side to move
+     */
+    public ChessGame.Outcome getOutcome() {
+        if(legalMoveCount > 0) return ChessGame.Outcome.ONGOING;
+        return inCheck ? ChessGame.Outcome.CHECKMATE : ChessGame.Outcome.STALEMATE;
+    }
+
+    @Override
+    public String toString() {
+        return sideToMove + " to move, " + legalMoveCount + " legal moves" + (inCheck ? ", in check" : "") +
+                (isGameOver() ? ", " + getOutcome() : "");
+    }
+}
@@ -0,0 +1,319 @@
+package chess;
+
+import java.util.Collection;
+
+/**
+ * Generates only legal moves for one team, without playing any of them out. The king's checkers and every pinned
+ * piece are worked out once per call, and each piece's targets are then masked down to the squares that either
+ * block or capture the checker and that keep a pinned piece on its pin line. King moves are tested against the
+ * enemy's attacks with the king taken off the board, so it can't hide behind itself along a checking ray. Castles
+ * are generated when the game still holds the right and the king neither starts in, passes through nor lands in
+ * check.
+ * <p>
+ * Moves are generated as PackedMoves into a MoveList. The Collection overloads convert them to ChessMoves.
+ * generateLegalCaptures() masks every piece's targets down to enemy squares, plus pawn pushes that promote, so a
+ * quiescence search never pays for the quiet moves it would throw away.
+ */
+public final class MoveGenerator {
+    private static final ChessPiece.PieceType[] PROMOTION_TYPES = {ChessPiece.PieceType.KNIGHT,
+            ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.ROOK, ChessPiece.PieceType.QUEEN};
+
+    private MoveGenerator() {}
+
+    /**
+     * Adds every legal move of a team's pieces to a collection
+     *
+     * @param game The game to generate moves in. Its en passant target is used, but its team turn is not.
+     * @param color The team to generate moves for
+     * @param moves The collection to add the moves to
+     */
+    public static void generateLegalMoves(ChessGame game, ChessGame.TeamColor color, Collection<ChessMove> moves) {
+        generateLegalMoves(game, color, -1L, moves);
+    }
+
+    /**
+     * Adds the legal moves of the team's pieces standing on the given squares to a collection
+     *
+     * @param game The game to generate moves in. Its en passant target is used, but its team turn is not.
+     * @param color The team to generate moves for
+     * @param fromMask Bitboard of the squares whose pieces should be generated for
+     * @param moves The collection to add the moves to
+     */
+    public static void generateLegalMoves(ChessGame game, ChessGame.TeamColor color, long fromMask,
+                                          Collection<ChessMove> moves) {
+        MoveList packed = MoveStack.scratch();
+        generateLegalMoves(game, color, fromMask, packed);
+        for(int i = 0; i < packed.size(); ++i) moves.add(PackedMove.toChessMove(packed.get(i)));
+    }
+
+    /**
+     * Adds every legal move of a team's pieces to a list of packed moves
+     *
+     * @param game The game to generate moves in. Its en passant target is used, but its team turn is not.
+     * @param color The team to generate moves for
+     * @param moves The list to add the moves to
+     */
+    public static void generateLegalMoves(ChessGame game, ChessGame.TeamColor color, MoveList moves) {
+        generateLegalMoves(game, color, -1L, moves);
+    }
+
+    /**
+     * Adds the legal moves of the team's pieces standing on the given squares to a list of packed moves
+     *
+     * @param game The game to generate moves in. Its en passant target is used, but its team turn is not.
+     * @param color The team to generate moves for
+     * @param fromMask Bitboard of the squares whose pieces should be generated for
+     * @param moves The list to add the moves to
+     */
+    public static void generateLegalMoves(ChessGame game, ChessGame.TeamColor color, long fromMask, MoveList moves) {
+        generate(game, color, fromMask, false, moves);
+    }
+
+    /**
+     * Adds only the legal captures and promotions of a team's pieces, en passant included, to a list of packed moves
+     *
+     * @param game The game to generate moves in. Its en passant target is used, but its team turn is not.
+     * @param color The team to generate moves for
+     * @param moves The list to add the moves to
+     */
+    public static void generateLegalCaptures(ChessGame game, ChessGame.TeamColor color, MoveList moves) {
+        generate(game, color, -1L, true, moves);
+    }
+
+    private static void generate(ChessGame game, ChessGame.TeamColor color, long fromMask, boolean capturesOnly,
+                                 MoveList moves) {
+        ChessBoard board = game.getBoard();
+        ChessGame.TeamColor enemy = color == ChessGame.TeamColor.WHITE ?
+                ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        long own = board.getTeamOccupancy(color);
+        long enemies = board.getTeamOccupancy(enemy);
+        long occupancy = board.getOccupancy();
+        long king = board.getPieces(color, ChessPiece.PieceType.KING);
+        long destinations = capturesOnly ? enemies : ~own;
+
+        // Without a king there is nothing to protect, so every pseudo-legal move is legal
+        long checkMask = -1L;
+        long pinned = 0;
+        int kingSquare = -1;
+        if(king != 0){
+            kingSquare = Long.numberOfTrailingZeros(king);
+            long checkers = Attacks.attackersTo(board, kingSquare, enemy, occupancy);
+
+            if((king & fromMask) != 0){
+                long targets = Attacks.kingAttacks(kingSquare) & destinations;
+                long occupancyWithoutKing = occupancy & ~king;
+                while(targets != 0){
+                    int to = Long.numberOfTrailingZeros(targets);
+                    targets &= targets - 1;
+                    if(Attacks.attackersTo(board, to, enemy, occupancyWithoutKing) == 0){
+                        moves.add(createMove(kingSquare, to, enemies));
+                    }
+                }
+                if(checkers == 0 && !capturesOnly) addCastles(game, color, kingSquare, enemy, occupancy, moves);
+            }
+            // Only the king can answer a double check
+            if(Long.bitCount(checkers) > 1) return;
+            if(checkers != 0){
+                int checkerSquare = Long.numberOfTrailingZeros(checkers);
+                checkMask = checkers | Attacks.between(kingSquare, checkerSquare);
+            }
+            pinned = findPinned(board, kingSquare, own, enemy, occupancy);
+        }
+
+        long pieces = own & ~king & fromMask;
+        while(pieces != 0){
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            long pinMask = (pinned & (1L << from)) != 0 ? Attacks.line(kingSquare, from) : -1L;
+            ChessPiece.PieceType type = board.pieceTypeAt(from);
+            if(type == ChessPiece.PieceType.PAWN){
+                addPawnMoves(game, color, from, kingSquare, checkMask & pinMask, capturesOnly, moves);
+                continue;
+            }
+            long targets = pieceAttacks(type, from, occupancy) & destinations & checkMask & pinMask;
+            while(targets != 0){
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                moves.add(createMove(from, to, enemies));
+            }
+        }
+    }
+
+    /**
+     * Checks whether a team has at least one legal move, stopping at the first one found. King moves are tried
+     * first, then captures by the other pieces, then pawn moves and finally the other pieces' quiet moves, since a
+     * side that can still move usually has one of the early ones. Castles are never needed here, since whenever one
+     * is legal so is the king's single step toward that rook.
+     *
+     * @param game The game to look for a move in. Its en passant target is used, but its team turn is not.
+     * @param color The team to look for a move for
+     * @return Whether the team has any legal move
+     */
+    public static boolean hasLegalMove(ChessGame game, ChessGame.TeamColor color) {
+        ChessBoard board = game.getBoard();
+        ChessGame.TeamColor enemy = color == ChessGame.TeamColor.WHITE ?
+                ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        long own = board.getTeamOccupancy(color);
+        long enemies = board.getTeamOccupancy(enemy);
+        long occupancy = board.getOccupancy();
+        long king = board.getPieces(color, ChessPiece.PieceType.KING);
+
+        long checkMask = -1L;
+        long pinned = 0;
+        int kingSquare = -1;
+        if(king != 0){
+            kingSquare = Long.numberOfTrailingZeros(king);
+            long targets = Attacks.kingAttacks(kingSquare) & ~own;
+            long occupancyWithoutKing = occupancy & ~king;
+            while(targets != 0){
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                if(Attacks.attackersTo(board, to, enemy, occupancyWithoutKing) == 0) return true;
+            }
+            long checkers = Attacks.attackersTo(board, kingSquare, enemy, occupancy);
+            if(Long.bitCount(checkers) > 1) return false;
+            if(checkers != 0){
+                checkMask = checkers | Attacks.between(kingSquare, Long.numberOfTrailingZeros(checkers));
+            }
+            pinned = findPinned(board, kingSquare, own, enemy, occupancy);
+        }
+
+        long pawns = board.getPieces(color, ChessPiece.PieceType.PAWN);
+        long others = own & ~king & ~pawns;
+        // Captures first, then quiet moves
+        for(int pass = 0; pass < 2; ++pass){
+            long targetMask = pass == 0 ? enemies : ~occupancy;
+            long pieces = others;
+            while(pieces != 0){
+                int from = Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                long pinMask = (pinned & (1L << from)) != 0 ? Attacks.line(kingSquare, from) : -1L;
+                if((pieceAttacks(board.pieceTypeAt(from), from, occupancy) & targetMask & checkMask & pinMask) != 0){
+                    return true;
+                }
+            }
+            if(pass == 0 && pawns != 0){
+                MoveList pawnMoves = MoveStack.scratch();
+                while(pawns != 0){
+                    int from = Long.numberOfTrailingZeros(pawns);
+                    pawns &= pawns - 1;
+                    long pinMask = (pinned & (1L << from)) != 0 ? Attacks.line(kingSquare, from) : -1L;
+                    addPawnMoves(game, color, from, kingSquare, checkMask & pinMask, false, pawnMoves);
+                    if(!pawnMoves.isEmpty()) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the castles a team that isn't in check can make. The squares between king and rook must be empty, and the
+     * square the king passes over and the one it lands on must not be attacked.
+     */
+    private static void addCastles(ChessGame game, ChessGame.TeamColor color, int kingSquare,
+                                   ChessGame.TeamColor enemy, long occupancy, MoveList moves) {
+        int home = Castling.kingHome(color);
+        if(kingSquare != home) return;
+        ChessBoard board = game.getBoard();
+        long rooks = board.getPieces(color, ChessPiece.PieceType.ROOK);
+        for(int side = 0; side < 2; ++side){
+            boolean kingside = side == 0;
+            int rookSquare = kingside ? home + 3 : home - 4;
+            int step = kingside ? 1 : -1;
+            if(!game.hasCastlingRight(color, kingside) || (rooks & (1L << rookSquare)) == 0 ||
+                    (Attacks.between(home, rookSquare) & occupancy) != 0){
+                continue;
+            }
+            if(Attacks.attackersTo(board, home + step, enemy, occupancy) != 0 ||
+                    Attacks.attackersTo(board, home + 2 * step, enemy, occupancy) != 0){
+                continue;
+            }
+            moves.add(PackedMove.encode(home, home + 2 * step, null, PackedMove.CASTLE));
+        }
+    }
+
+    private static long pieceAttacks(ChessPiece.PieceType type, int from, long occupancy) {
+        return switch(type){
+            case KNIGHT -> Attacks.knightAttacks(from);
+            case BISHOP -> Attacks.bishopAttacks(from, occupancy);
+            case ROOK -> Attacks.rookAttacks(from, occupancy);
+            case QUEEN -> Attacks.queenAttacks(from, occupancy);
+            default -> 0L;
+        };
+    }
+
+    /**
+     * Finds the team's pieces that are the only thing between their king and an enemy rook, bishop or queen
+     */
+    private static long findPinned(ChessBoard board, int kingSquare, long own, ChessGame.TeamColor enemy,
+                                   long occupancy) {
+        long queens = board.getPieces(enemy, ChessPiece.PieceType.QUEEN);
+        // Enemy sliders that would hit the king if nothing stood in the way
+        long snipers = (Attacks.rookAttacks(kingSquare, 0) & (board.getPieces(enemy, ChessPiece.PieceType.ROOK) |
+                queens)) | (Attacks.bishopAttacks(kingSquare, 0) & (board.getPieces(enemy,
+                ChessPiece.PieceType.BISHOP) | queens));
+        long pinned = 0;
+        while(snipers != 0){
+            int sniperSquare = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Attacks.between(kingSquare, sniperSquare) & occupancy;
+            if(Long.bitCount(blockers) == 1 && (blockers & own) != 0) pinned |= blockers;
+        }
+        return pinned;
+    }
+
+    private static void addPawnMoves(ChessGame game, ChessGame.TeamColor color, int from, int kingSquare,
+                                     long allowed, boolean capturesOnly, MoveList moves) {
+        ChessBoard board = game.getBoard();
+        long occupancy = board.getOccupancy();
+        boolean white = color == ChessGame.TeamColor.WHITE;
+        int forward = white ? 8 : -8;
+        int row = from / 8;
+        boolean onHomeRow = row == (white ? 1 : 6);
+        boolean readyToPromote = row == (white ? 6 : 1);
+
+        long enemies = board.getTeamOccupancy(white ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        long targets = Attacks.pawnAttacks(color, from) & enemies;
+        int singleAdvance = from + forward;
+        // Without promoting, a push is a quiet move
+        boolean pushes = !capturesOnly || readyToPromote;
+        if(pushes && singleAdvance >= 0 && singleAdvance < 64 && (occupancy & (1L << singleAdvance)) == 0){
+            targets |= 1L << singleAdvance;
+            if(onHomeRow && (occupancy & (1L << (singleAdvance + forward))) == 0){
+                targets |= 1L << (singleAdvance + forward);
+            }
+        }
+        targets &= allowed;
+        while(targets != 0){
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            int flags = (enemies & (1L << to)) != 0 ? PackedMove.CAPTURE : 0;
+            if(readyToPromote){
+                for(ChessPiece.PieceType promotion : PROMOTION_TYPES){
+                    moves.add(PackedMove.encode(from, to, promotion, flags));
+                }
+            }else moves.add(PackedMove.encode(from, to, null, flags));
+        }
+
+        // En passant can uncover an attack along the pawns' row, so it is checked by replaying it on the occupancy
+        ChessPosition enPassantTarget = game.enPassantTarget;
+        if(enPassantTarget == null) return;
+        int to = ChessBoard.toSquare(enPassantTarget);
+        if((Attacks.pawnAttacks(color, from) & (1L << to)) == 0) return;
+        int capturedSquare = to - forward;
+        if(board.teamAt(capturedSquare) == color || board.pieceTypeAt(capturedSquare) != ChessPiece.PieceType.PAWN){
+            return;
+        }
+        if(kingSquare >= 0){
+            long afterCapture = (occupancy & ~(1L << from) & ~(1L << capturedSquare)) | (1L << to);
+            long attackers = Attacks.attackersTo(board, kingSquare, white ?
+                    ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE, afterCapture);
+            if((attackers & ~(1L << capturedSquare)) != 0) return;
+        }
+        moves.add(PackedMove.encode(from, to, null, PackedMove.CAPTURE | PackedMove.EN_PASSANT));
+    }
+
+    private static int createMove(int from, int to, long enemies) {
+        return PackedMove.encode(from, to, null, (enemies & (1L << to)) != 0 ? PackedMove.CAPTURE : 0);
+    }
+}
@@ -0,0 +1,81 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A growable list of PackedMove ints. Adding and reading moves never boxes, and clear() keeps the array, so one list
+ * can be filled again and again without allocating.
+ */
+public final class MoveList {
+    private int[] moves;
+    private int size;
+
+    public MoveList() {
+        this(64);
+    }
+
+    /**
+     * @param capacity How many moves to make room for up front
+     */
+    public MoveList(int capacity) {
+        moves = new int[Math.max(capacity, 1)];
+    }
+
+    public void add(int move) {
+        if(size == moves.length) moves = Arrays.copyOf(moves, size * 2);
+        moves[size++] = move;
+    }
+
+    public int get(int index) {
+        if(index >= size) throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        if(index >= size) throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        moves[index] = move;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return Whether the list holds exactly this packed move
+     */
+    public boolean contains(int move) {
+        for(int i = 0; i < size; ++i){
+            if(moves[i] == move) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return The moves converted to ChessMoves, in list order
+     */
+    public List<ChessMove> toChessMoves() {
+        List<ChessMove> chessMoves = new ArrayList<>(size);
+        for(int i = 0; i < size; ++i) chessMoves.add(PackedMove.toChessMove(moves[i]));
+        return chessMoves;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder bob = new StringBuilder("[");
+        for(int i = 0; i < size; ++i){
+            if(i > 0) bob.append(", ");
+            bob.append(PackedMove.toString(moves[i]));
+        }
+        return bob.append(']').toString();
+    }
+}
@@ -0,0 +1,144 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * Decides which moves Search tries first. Alpha-beta cuts off sooner the earlier it meets the best move, so each
+ * move gets a score:
+ * <ol>
+ *     <li>the hash move, from the previous iteration's principal variation or the transposition table</li>
+ *     <li>captures and promotions, most valuable victim first and, among those, least valuable attacker first
+ *     (MVV-LVA)</li>
+ *     <li>the two killer moves of this ply: quiet moves that caused a cutoff at the same ply elsewhere in the tree</li>
+ *     <li>every other quiet move, by its history score: how often and how deep it has caused cutoffs so far</li>
+ * </ol>
+ * Most nodes cut off after one or two moves, so rather than sorting the whole list, next() selects the best
+ * remaining move each time it is asked.
+ * <p>
+ * A MoveOrderer belongs to one Search, and its killers and history start empty on every clear().
+ */
+public final class MoveOrderer {
+    private static final int HASH_MOVE = 1 << 30;
+    private static final int CAPTURE = 1 << 29;
+    private static final int FIRST_KILLER = CAPTURE - 1;
+    private static final int SECOND_KILLER = CAPTURE - 2;
+    // History scores are halved once any reaches this, so they stay below the killers and favour recent cutoffs
+    private static final int HISTORY_LIMIT = 1 << 20;
+
+    // How much each PieceType is worth as a victim or attacker, indexed by ordinal: KING, QUEEN, BISHOP, KNIGHT,
+    // ROOK, PAWN
+    private static final int[] VALUE_RANKS = {6, 5, 3, 2, 4, 1};
+
+    private final int[][] killers;
+    // Indexed by [TeamColor ordinal][from][to]
+    private final int[][][] history = new int[2][64][64];
+    private int[][] scores;
+
+    /**
+     * @param maxPly How many plies below the root the orderer needs to handle
+     */
+    public MoveOrderer(int maxPly) {
+        killers = new int[maxPly + 1][2];
+        scores = new int[maxPly + 1][256];
+    }
+
+    /**
+     * Forgets every killer move and history score
+     */
+    public void clear() {
+        for(int[] pair : killers){
+            pair[0] = PackedMove.NONE;
+            pair[1] = PackedMove.NONE;
+        }
+        for(int[][] side : history){
+            for(int[] from : side) Arrays.fill(from, 0);
+        }
+    }
+
+    /**
+     * Scores a ply's moves, ready for next() to hand them out best first
+     *
+     * @param game The game the moves were generated in, before any of them is played
+     * @param moves The ply's moves
+     * @param ply How far below the root the moves are
+     * @param hashMove The move to try first, or PackedMove.NONE
+     */
+    public void score(ChessGame game, MoveList moves, int ply, int hashMove) {
+        if(scores[ply].length < moves.size()) scores[ply] = new int[moves.size() * 2];
+        int[] plyScores = scores[ply];
+        ChessBoard board = game.getBoard();
+        int[] side = killers[ply];
+        int[][] sideHistory = history[game.getTeamTurn().ordinal()];
+        for(int i = 0; i < moves.size(); ++i){
+            int move = moves.get(i);
+            int from = PackedMove.from(move);
+            int to = PackedMove.to(move);
+            if(move == hashMove) plyScores[i] = HASH_MOVE;
+            else if(PackedMove.isCapture(move) || PackedMove.isPromotion(move)){
+                // En passant and plain promotions have no piece on the end square
+                ChessPiece.PieceType victim = PackedMove.isEnPassant(move) ? ChessPiece.PieceType.PAWN :
+                        board.pieceTypeAt(to);
+                int victimRank = victim == null ? 0 : VALUE_RANKS[victim.ordinal()];
+                ChessPiece.PieceType promotion = PackedMove.promotion(move);
+                int promotionRank = promotion == null ? 0 : VALUE_RANKS[promotion.ordinal()];
+                plyScores[i] = CAPTURE + (victimRank + promotionRank) * 16 - VALUE_RANKS[board.pieceTypeAt(from)
+                        .ordinal()];
+            }else if(move == side[0]) plyScores[i] = FIRST_KILLER;
+            else if(move == side[1]) plyScores[i] = SECOND_KILLER;
+            else plyScores[i] = sideHistory[from][to];
+        }
+    }
+
+    /**
+     * Moves the best scored of the moves from index onward to index, and returns it
+     *
+     * @param moves The ply's moves, as passed to score()
+     * @param ply How far below the root the moves are
+     * @param index How many moves have been handed out already
+     * @return The best move not yet handed out
+     */
+    public int next(MoveList moves, int ply, int index) {
+        int[] plyScores = scores[ply];
+        int best = index;
+        for(int i = index + 1; i < moves.size(); ++i){
+            if(plyScores[i] > plyScores[best]) best = i;
+        }
+        if(best != index){
+            int move = moves.get(best);
+            moves.set(best, moves.get(index));
+            moves.set(index, move);
+            int score = plyScores[best];
+            plyScores[best] = plyScores[index];
+            plyScores[index] = score;
+        }
+        return moves.get(index);
+    }
+
+    /**
+     * Remembers a quiet move that caused a beta cutoff, as a killer for its ply and in the mover's history
+     *
+     * @param color The team that made the move
+     * @param move The move
+     * @param ply How far below the root it was played
+     * @param depth How deep the node it was played at was searched
+     */
+    public void recordCutoff(ChessGame.TeamColor color, int move, int ply, int depth) {
+        if(PackedMove.isCapture(move) || PackedMove.isPromotion(move)) return;
+        int[] pair = killers[ply];
+        if(pair[0] != move){
+            pair[1] = pair[0];
+            pair[0] = move;
+        }
+        int[][] sideHistory = history[color.ordinal()];
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        sideHistory[from][to] += depth * depth;
+        if(sideHistory[from][to] >= HISTORY_LIMIT){
+            for(int[][] side : history){
+                for(int[] targets : side){
+                    for(int i = 0; i < 64; ++i) targets[i] /= 2;
+                }
+            }
+        }
+    }
+}
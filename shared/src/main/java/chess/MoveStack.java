@@ -0,0 +1,53 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * One reusable MoveList per ply of a tree walk. A recursive search fills get(ply) at each level, and since a level's
+ * list is only needed until that level returns, the same lists serve every node at that depth, so walking the tree
+ * allocates nothing once the stack has grown to the deepest ply.
+ * <p>
+ * A MoveStack belongs to one walk on one thread. For short-lived generation outside a tree walk, scratch() hands out
+ * a list owned by the calling thread.
+ */
+public final class MoveStack {
+    private static final ThreadLocal<MoveList> SCRATCH = ThreadLocal.withInitial(MoveList::new);
+
+    private MoveList[] plies;
+
+    public MoveStack() {
+        this(16);
+    }
+
+    /**
+     * @param depth How many plies to make room for up front
+     */
+    public MoveStack(int depth) {
+        plies = new MoveList[Math.max(depth, 1)];
+    }
+
+    /**
+     * @param ply How far below the root the list is for
+     * @return That ply's list, emptied
+     */
+    public MoveList get(int ply) {
+        if(ply >= plies.length) plies = Arrays.copyOf(plies, Math.max(ply + 1, plies.length * 2));
+        MoveList moves = plies[ply];
+        if(moves == null){
+            moves = new MoveList();
+            plies[ply] = moves;
+        }
+        moves.clear();
+        return moves;
+    }
+
+    /**
+     * Gets the calling thread's scratch list, emptied. It is shared by everything on the thread that uses it, so it
+     * must be finished with before anything else that might use it is called.
+     */
+    static MoveList scratch() {
+        MoveList moves = SCRATCH.get();
+        moves.clear();
+        return moves;
+    }
+}
@@ -0,0 +1,107 @@
+package chess;
+
+/**
+ * Encodes a move as a single int, so the move generator, perft and search can pass moves around in primitive
+ * MoveLists instead of allocating a ChessMove and two ChessPositions for each one. ChessMove is still what the public
+ * API takes and returns, and the conversions here are used at that boundary.
+ * <p>
+ * Layout (low bits first):
+ * <ul>
+ *     <li>bits 0-5: the start square (0 for a1 through 63 for h8)</li>
+ *     <li>bits 6-11: the end square</li>
+ *     <li>bits 12-14: the promotion piece as 1 + PieceType ordinal, or 0 for no promotion</li>
+ *     <li>bit 15: the move captures a piece</li>
+ *     <li>bit 16: the move is an en passant capture</li>
+ *     <li>bit 17: the move is a castle</li>
+ * </ul>
+ * A valid move is never 0, since its start and end squares differ, so 0 can stand for "no move".
+ */
+public final class PackedMove {
+    public static final int NONE = 0;
+
+    public static final int CAPTURE = 1 << 15;
+    public static final int EN_PASSANT = 1 << 16;
+    public static final int CASTLE = 1 << 17;
+
+    private static final ChessPiece.PieceType[] PIECE_TYPES = ChessPiece.PieceType.values();
+
+    private PackedMove() {}
+
+    /**
+     * @param from The start square
+     * @param to The end square
+     * @param promotion The piece a pawn promotes to, or null
+     * @param flags Any of CAPTURE, EN_PASSANT and CASTLE combined
+     * @return The packed move
+     */
+    public static int encode(int from, int to, ChessPiece.PieceType promotion, int flags) {
+        return from | (to << 6) | (promotion == null ? 0 : (promotion.ordinal() + 1) << 12) | flags;
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    /**
+     * @return The piece a pawn promotes to, or null if the move isn't a promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        int promotion = (move >>> 12) & 0x7;
+        return promotion == 0 ? null : PIECE_TYPES[promotion - 1];
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move & (0x7 << 12)) != 0;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return (move & EN_PASSANT) != 0;
+    }
+
+    public static boolean isCastle(int move) {
+        return (move & CASTLE) != 0;
+    }
+
+    /**
+     * @return The move as a ChessMove, with its en passant flag set to match
+     */
+    public static ChessMove toChessMove(int move) {
+        ChessMove chessMove = new ChessMove(ChessPosition.of(from(move)), ChessPosition.of(to(move)), promotion(move));
+        if(isEnPassant(move)) chessMove.setIsEnPassant(true);
+        return chessMove;
+    }
+
+    /**
+     * Packs a ChessMove, taking the capture and castle flags from the board it is about to be played on
+     *
+     * @param move The move to pack
+     * @param board The board before the move, or null to leave the capture and castle flags unset
+     * @return The packed move
+     */
+    public static int fromChessMove(ChessMove move, ChessBoard board) {
+        int from = ChessBoard.toSquare(move.getStartPosition());
+        int to = ChessBoard.toSquare(move.getEndPosition());
+        int flags = 0;
+        if(move.isEnPassant()) flags |= EN_PASSANT | CAPTURE;
+        else if(board != null && (board.getOccupancy() & (1L << to)) != 0) flags |= CAPTURE;
+        if(board != null && Math.abs(to - from) == 2 && board.pieceTypeAt(from) == ChessPiece.PieceType.KING){
+            flags |= CASTLE;
+        }
+        return encode(from, to, move.getPromotionPiece(), flags);
+    }
+
+    /**
+     * @return The move in the same "e2->e4" form ChessMove uses
+     */
+    public static String toString(int move) {
+        return toChessMove(move).toString();
+    }
+}
@@ -0,0 +1,115 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs perft across every core with a ForkJoinPool. The move tree is split into one task per move for the top
+ * SPLIT_PLIES plies, and each task plays its move on its own copy of the game, since ChessGame is mutable and not
+ * thread safe. Below that, each task counts its subtree with the sequential Perft.
+ */
+public final class ParallelPerft {
+    // Two plies gives several hundred tasks from a normal position, enough to keep every core busy to the end
+    private static final int SPLIT_PLIES = 2;
+    // Subtrees this shallow are counted in the calling task, since forking costs more than they take
+    private static final int MIN_SPLIT_DEPTH = 3;
+
+    private ParallelPerft() {}
+
+    /**
+     * Counts the leaf positions reachable from the game's current position, using the common ForkJoinPool
+     *
+     * @param game The game to count from. It isn't modified.
+     * @param depth How many moves deep to count
+     * @return The number of leaf positions, the same as Perft.perft() returns
+     */
+    public static long perft(ChessGame game, int depth) {
+        return perft(game, depth, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Counts the leaf positions reachable from the game's current position
+     *
+     * @param game The game to count from. It isn't modified.
+     * @param depth How many moves deep to count
+     * @param pool The pool to run the count on
+     * @return The number of leaf positions, the same as Perft.perft() returns
+     */
+    public static long perft(ChessGame game, int depth, ForkJoinPool pool) {
+        return pool.invoke(new PerftTask(new ChessGame(game), depth, SPLIT_PLIES));
+    }
+
+    /**
+     * Counts the leaf positions below each legal move of the current position in parallel
+     *
+     * @param game The game to count from. It isn't modified.
+     * @param depth How many moves deep to count, including the root move
+     * @param pool The pool to run the count on
+     * @return Each root move mapped to the leaf count beneath it, in generation order
+     */
+    public static Map<ChessMove, Long> divide(ChessGame game, int depth, ForkJoinPool pool) {
+        Map<ChessMove, Long> counts = new LinkedHashMap<>();
+        if(depth < 1) return counts;
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(game, game.getTeamTurn(), moves);
+        List<PerftTask> tasks = new ArrayList<>(moves.size());
+        for(int i = 0; i < moves.size(); ++i){
+            tasks.add(PerftTask.afterMove(game, moves.get(i), depth - 1, SPLIT_PLIES - 1));
+        }
+        pool.invoke(new RecursiveTask<Void>() {
+            @Override
+            protected Void compute() {
+                invokeAll(tasks);
+                return null;
+            }
+        });
+        for(int i = 0; i < moves.size(); ++i){
+            counts.put(PackedMove.toChessMove(moves.get(i)), tasks.get(i).join());
+        }
+        return counts;
+    }
+
+    /**
+     * Counts the subtree of a position the task owns outright
+     */
+    private static class PerftTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        // Tasks are never serialized, so the game they count from needn't be
+        private final transient ChessGame game;
+        private final int depth;
+        private final int splitPlies;
+
+        PerftTask(ChessGame game, int depth, int splitPlies) {
+            this.game = game;
+            this.depth = depth;
+            this.splitPlies = splitPlies;
+        }
+
+        static PerftTask afterMove(ChessGame game, int move, int depth, int splitPlies) {
+            ChessGame child = new ChessGame(game);
+            child.doMove(move);
+            return new PerftTask(child, depth, splitPlies);
+        }
+
+        @Override
+        protected Long compute() {
+            if(splitPlies <= 0 || depth < MIN_SPLIT_DEPTH) return Perft.perft(game, depth);
+            MoveList moves = new MoveList();
+            MoveGenerator.generateLegalMoves(game, game.getTeamTurn(), moves);
+            List<PerftTask> children = new ArrayList<>(moves.size());
+            for(int i = 0; i < moves.size(); ++i){
+                children.add(afterMove(game, moves.get(i), depth - 1, splitPlies - 1));
+            }
+            long nodes = 0;
+            for(PerftTask child : invokeAll(children)){
+                nodes += child.join();
+            }
+            return nodes;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a Search on several threads at once by Lazy SMP. Every thread searches the same root position on its own copy
+ * of the game, and they share nothing but a TranspositionTable. What one thread learns about a position is found in
+ * the table by the others, so together they reach a given depth sooner than one thread alone. Odd numbered helpers
+ * start a ply deeper than the main thread, so the threads spread over neighbouring depths.
+ * <p>
+ * The main thread's result is the one returned. Once it finishes, the helpers are stopped and their nodes are added
+ * to its count.
+ * <p>
+ * Usage: {@code java -cp shared/target/classes chess.ParallelSearch <depth> [fen] [--threads <n,n,...>]
+ * [--hash <megabytes>]}
+ * <p>
+ * main() searches to the depth once for each thread count, with a fresh table each time, and reports each count's
+ * time to depth and speedup over the first.
+ */
+public final class ParallelSearch {
+    private ParallelSearch() {}
+
+    /**
+     * Searches the game's current position with one thread per available core and a 64 MB table
+     *
+     * @param game The game to search. It isn't modified.
+     * @param limits When the main thread should stop
+     * @return The main thread's result, with the nodes of every thread
+     */
+    public static SearchResult search(ChessGame game, Search.Limits limits) {
+        return search(game, limits, Runtime.getRuntime().availableProcessors(), new TranspositionTable(64));
+    }
+
+    /**
+     * Searches the game's current position with several threads sharing one table
+     *
+     * @param game The game to search. It isn't modified.
+     * @param limits When the main thread should stop
+     * @param threads How many threads to search with, including the calling thread
+     * @param table The table the threads share, which may already hold entries from earlier searches
+     * @return The main thread's result, with the nodes of every thread
+     */
+    public static SearchResult search(ChessGame game, Search.Limits limits, int threads, TranspositionTable table) {
+        if(threads < 1) throw new IllegalArgumentException("A search needs at least one thread");
+        long start = System.nanoTime();
+        ChessGame snapshot = new ChessGame(game);
+        List<Search> helpers = new ArrayList<>(threads - 1);
+        List<Thread> helperThreads = new ArrayList<>(threads - 1);
+        // Helpers keep going until the main thread is done, whatever its node or time limit
+        Search.Limits helperLimits = Search.Limits.depth(limits.depth());
+        for(int i = 1; i < threads; ++i){
+            Search helper = new Search(table);
+            helper.setStartDepth(1 + i % 2);
+            Thread thread = new Thread(() -> helper.search(snapshot, helperLimits), "search-helper-" + i);
+            thread.setDaemon(true);
+            helpers.add(helper);
+            helperThreads.add(thread);
+        }
+        // Every helper copies the snapshot before it starts, and nothing writes to it
+        for(Thread thread : helperThreads) thread.start();
+
+        Search main = new Search(table);
+        SearchResult result = main.search(snapshot, limits);
+
+        long nodes = main.getNodes();
+        for(int i = 0; i < helpers.size(); ++i){
+            Thread thread = helperThreads.get(i);
+            // A helper that hadn't started yet resets its stop flag, so keep asking until it has finished
+            while(thread.isAlive()){
+                helpers.get(i).stop();
+                try{
+                    thread.join(1);
+                }catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            nodes += helpers.get(i).getNodes();
+        }
+        return result.withTotals(nodes, System.nanoTime() - start);
+    }
+
+    public static void main(String[] args) {
+        if(args.length < 1){
+            System.out.println("Usage: ParallelSearch <depth> [fen] [--threads <n,n,...>] [--hash <megabytes>]");
+            return;
+        }
+        int depth = Integer.parseInt(args[0]);
+        String fen = Fen.START_POSITION;
+        int megabytes = 64;
+        List<Integer> threadCounts = new ArrayList<>();
+        for(int i = 1; i < args.length; ++i){
+            if(args[i].equals("--threads") && i + 1 < args.length){
+                for(String count : args[++i].split(",")) threadCounts.add(Integer.parseInt(count.trim()));
+            }else if(args[i].equals("--hash") && i + 1 < args.length) megabytes = Integer.parseInt(args[++i]);
+            else fen = args[i];
+        }
+        if(threadCounts.isEmpty()){
+            for(int count = 1; count <= Runtime.getRuntime().availableProcessors(); count *= 2) threadCounts.add(count);
+        }
+
+        ChessGame game = Fen.load(fen);
+        System.out.println(fen);
+        double baseline = 0;
+        for(int threads : threadCounts){
+            SearchResult result = search(game, Search.Limits.depth(depth), threads, new TranspositionTable(megabytes));
+            double seconds = result.getElapsedNanos() / 1e9;
+            if(baseline == 0) baseline = seconds;
+            System.out.printf("threads %d: %.3f s, %d nodes (%d nodes/s), speedup %.2fx, best move %s, score %d%n",
+                    threads, seconds, result.getNodes(), result.getNodesPerSecond(), baseline / seconds,
+                    result.getBestMove(), result.getScore());
+        }
+    }
+}
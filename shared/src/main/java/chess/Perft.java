@@ -0,0 +1,111 @@
+package chess;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Perft ("performance test") walks the tree of legal moves from a position and counts the positions reached at a
+ * given depth. The counts for well known positions are published, so a mismatch points straight at a move generation
+ * bug, and the time taken is a benchmark for the move generator and doMove()/undoMove().
+ * <p>
+ * Usage: {@code java -cp shared/target/classes chess.Perft <depth> [fen] [--divide] [--threads <n>]}
+ * <p>
+ * With --threads the count runs on ParallelPerft with a pool of that many threads (0 for one per core).
+ */
+public final class Perft {
+    private Perft() {}
+
+    /**
+     * Counts the leaf positions reachable from the game's current position in exactly the given number of moves.
+     * The game is left as it was found.
+     *
+     * @param game The game to count from. The side to move is taken from its team turn.
+     * @param depth How many moves deep to count
+     * @return The number of leaf positions
+     */
+    public static long perft(ChessGame game, int depth) {
+        return perft(game, depth, new MoveStack(depth), 0);
+    }
+
+    private static long perft(ChessGame game, int depth, MoveStack stack, int ply) {
+        if(depth == 0) return 1;
+        MoveList moves = stack.get(ply);
+        MoveGenerator.generateLegalMoves(game, game.getTeamTurn(), moves);
+        // Every legal move at the last level is exactly one leaf, so there's no need to play them
+        if(depth == 1) return moves.size();
+        long nodes = 0;
+        for(int i = 0; i < moves.size(); ++i){
+            int move = moves.get(i);
+            int undo = game.doMove(move);
+            nodes += perft(game, depth - 1, stack, ply + 1);
+            game.undoMove(move, undo);
+        }
+        return nodes;
+    }
+
+    /**
+     * Runs perft separately below each legal move of the current position, which narrows down where a wrong total
+     * comes from when compared against a reference engine's divide output.
+     *
+     * @param game The game to count from
+     * @param depth How many moves deep to count, including the root move
+     * @return Each root move mapped to the leaf count beneath it, in generation order
+     */
+    public static Map<ChessMove, Long> divide(ChessGame game, int depth) {
+        Map<ChessMove, Long> counts = new LinkedHashMap<>();
+        if(depth < 1) return counts;
+        MoveStack stack = new MoveStack(depth);
+        MoveList moves = stack.get(0);
+        MoveGenerator.generateLegalMoves(game, game.getTeamTurn(), moves);
+        for(int i = 0; i < moves.size(); ++i){
+            int move = moves.get(i);
+            int undo = game.doMove(move);
+            counts.put(PackedMove.toChessMove(move), perft(game, depth - 1, stack, 1));
+            game.undoMove(move, undo);
+        }
+        return counts;
+    }
+
+    public static void main(String[] args) {
+        if(args.length < 1){
+            System.out.println("Usage: Perft <depth> [fen] [--divide] [--threads <n>]");
+            return;
+        }
+        int depth = Integer.parseInt(args[0]);
+        boolean divide = false;
+        int threads = -1;
+        String fen = Fen.START_POSITION;
+        for(int i = 1; i < args.length; ++i){
+            if(args[i].equals("--divide")) divide = true;
+            else if(args[i].equals("--threads") && i + 1 < args.length) threads = Integer.parseInt(args[++i]);
+            else fen = args[i];
+        }
+        ChessGame game = Fen.load(fen);
+        ForkJoinPool pool = null;
+        if(threads >= 0){
+            pool = new ForkJoinPool(threads == 0 ? Runtime.getRuntime().availableProcessors() : threads);
+        }
+
+        long start = System.nanoTime();
+        long nodes;
+        if(divide){
+            nodes = 0;
+            Map<ChessMove, Long> counts = pool == null ? divide(game, depth) :
+                    ParallelPerft.divide(game, depth, pool);
+            for(Map.Entry<ChessMove, Long> entry : counts.entrySet()){
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+                nodes += entry.getValue();
+            }
+        }else nodes = pool == null ? perft(game, depth) : ParallelPerft.perft(game, depth, pool);
+        long elapsed = System.nanoTime() - start;
+        if(pool != null){
+            System.out.println("threads: " + pool.getParallelism());
+            pool.shutdown();
+        }
+
+        System.out.println(fen);
+        System.out.printf("depth %d: %d nodes in %.3f s (%.0f nodes/s)%n", depth, nodes, elapsed / 1e9,
+                nodes / Math.max(elapsed / 1e9, 1e-9));
+    }
+}
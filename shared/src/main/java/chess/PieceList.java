@@ -0,0 +1,98 @@
+package chess;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The squares of one team's pieces, kept in a packed array with a square-to-slot index beside it, so adding,
+ * removing and moving a piece are all O(1). Removing a piece moves the last square into the freed slot, so the order
+ * of the squares isn't kept.
+ * <p>
+ * ChessGame hands the list out through asList(), a read-only view that always reflects the current squares.
+ */
+final class PieceList {
+    private static final int NO_SLOT = -1;
+
+    private int[] squares = new int[16];
+    private int size;
+    private final int[] slotOfSquare = new int[64];
+    private transient List<ChessPosition> view;
+
+    PieceList() {
+        Arrays.fill(slotOfSquare, NO_SLOT);
+    }
+
+    PieceList(PieceList original) {
+        squares = original.squares.clone();
+        size = original.size;
+        System.arraycopy(original.slotOfSquare, 0, slotOfSquare, 0, 64);
+    }
+
+    void add(int square) {
+        if(slotOfSquare[square] != NO_SLOT) return;
+        if(size == squares.length) squares = Arrays.copyOf(squares, size * 2);
+        slotOfSquare[square] = size;
+        squares[size++] = square;
+    }
+
+    void remove(int square) {
+        int slot = slotOfSquare[square];
+        if(slot == NO_SLOT) return;
+        int last = squares[--size];
+        squares[slot] = last;
+        slotOfSquare[last] = slot;
+        slotOfSquare[square] = NO_SLOT;
+    }
+
+    /**
+     * Moves a piece to an empty square, keeping its slot
+     */
+    void move(int from, int to) {
+        int slot = slotOfSquare[from];
+        if(slot == NO_SLOT) return;
+        squares[slot] = to;
+        slotOfSquare[to] = slot;
+        slotOfSquare[from] = NO_SLOT;
+    }
+
+    boolean contains(int square) {
+        return slotOfSquare[square] != NO_SLOT;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int square(int slot) {
+        return squares[slot];
+    }
+
+    void clear() {
+        for(int i = 0; i < size; ++i) slotOfSquare[squares[i]] = NO_SLOT;
+        size = 0;
+    }
+
+    /**
+     * @return A read-only list of the squares as positions, which follows later changes to this piece list
+     */
+    List<ChessPosition> asList() {
+        if(view == null){
+            view = new AbstractList<>() {
+                @Override
+                public ChessPosition get(int index) {
+                    if(index < 0 || index >= size){
+                        throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+                    }
+                    return ChessPosition.of(squares[index]);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return view;
+    }
+}
@@ -0,0 +1,293 @@
+package chess;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Picks a move by negamax alpha-beta search. Each iteration searches one ply deeper than the last, starting with the
+ * previous iteration's principal variation, until the depth, node or time limit is reached. Only completed
+ * iterations count, so a search cut short by its limits still returns the best move of the deepest one it finished.
+ * <p>
+ * The search plays its moves on a private copy of the game with doMove()/undoMove() and generates them as PackedMoves
+ * into one MoveList per ply, so it allocates nothing while searching. At the horizon a quiescence search plays out
+ * captures and promotions until the position is quiet, so a piece isn't counted as won when it can simply be taken
+ * back. Quiet positions are scored by ChessGame.evaluate(), which the game keeps up to date as moves are made. With no
+ * time limit it is deterministic: the same position and depth always give the same move, score and node count, as long
+ * as it has no transposition table or starts with an empty one.
+ * <p>
+ * Moves are tried in the order a MoveOrderer picks: the principal variation or stored best move, then captures by
+ * MVV-LVA, then killer moves, then quiet moves by history. Killers and history start empty on every search.
+ * <p>
+ * Given a TranspositionTable, the search stores every node's result in it and tries the stored best move first when
+ * it meets the position again. Several searches can share one table, which is how ParallelSearch works.
+ * <p>
+ * A Search belongs to one thread, but stop() may be called from any thread.
+ * <p>
+ * Usage: {@code java -cp shared/target/classes chess.Search <depth> [fen] [--time <ms>] [--nodes <n>]}
+ */
+public final class Search {
+    /** The score of delivering mate right now. A mate n plies away scores MATE - n. */
+    public static final int MATE = 32000;
+    static final int INFINITY = MATE + 1;
+    static final int MAX_PLY = 64;
+
+    // How many nodes pass between looks at the clock
+    private static final int CHECK_INTERVAL = 1024;
+    // How far a capture's positional swing might carry the score past the captured piece's value
+    private static final int DELTA_MARGIN = 200;
+
+    /**
+     * When a search should stop. A depth of 0 or less means MAX_PLY, and a node or time limit of 0 or less means
+     * none.
+     *
+     * @param depth The deepest iteration to search
+     * @param nodes How many nodes to visit at most
+     * @param millis How long to search for at most
+     */
+    public record Limits(int depth, long nodes, long millis) {
+        public static Limits depth(int depth) {
+            return new Limits(depth, 0, 0);
+        }
+
+        public static Limits time(long millis) {
+            return new Limits(0, 0, millis);
+        }
+
+        public static Limits nodes(long nodes) {
+            return new Limits(0, nodes, 0);
+        }
+    }
+
+    private final TranspositionTable table;
+    private final MoveStack stack = new MoveStack(MAX_PLY);
+    private final MoveOrderer orderer = new MoveOrderer(MAX_PLY);
+    // Triangular PV table: pvTable[ply] holds the best line found from ply onward, pvLength[ply] where it ends
+    private final int[][] pvTable = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    private int[] previousPv = new int[0];
+    private boolean followPv;
+
+    private ChessGame game;
+    private int startDepth = 1;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private boolean canStop;
+    private boolean stopped;
+    private volatile boolean stopRequested;
+
+    public Search() {
+        this(null);
+    }
+
+    /**
+     * @param table The table to remember positions in, which other searches may share, or null for none
+     */
+    public Search(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Sets the depth the first iteration searches. ParallelSearch starts some of its helpers a ply deeper than the
+     * main search, so they spread over different depths instead of repeating its work.
+     */
+    void setStartDepth(int depth) {
+        startDepth = Math.max(1, depth);
+    }
+
+    /**
+     * @return How many nodes the current or last search has visited
+     */
+    long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Searches the game's current position for the side to move. The game itself isn't changed.
+     *
+     * @param game The game to search
+     * @param limits When to stop
+     * @return The result of the deepest completed iteration
+     */
+    public SearchResult search(ChessGame game, Limits limits) {
+        return search(game, limits, null);
+    }
+
+    /**
+     * Searches the game's current position, reporting each completed iteration as it finishes
+     *
+     * @param game The game to search
+     * @param limits When to stop
+     * @param onIteration Called with the result of every completed iteration, or null
+     * @return The result of the deepest completed iteration
+     */
+    public SearchResult search(ChessGame game, Limits limits, Consumer<SearchResult> onIteration) {
+        this.game = new ChessGame(game);
+        this.game.setValidMovesCache(null);
+        int maxDepth = limits.depth() <= 0 ? MAX_PLY : Math.min(limits.depth(), MAX_PLY);
+        long start = System.nanoTime();
+        nodes = 0;
+        nodeLimit = limits.nodes() > 0 ? limits.nodes() : Long.MAX_VALUE;
+        deadline = limits.millis() > 0 ? start + limits.millis() * 1_000_000 : Long.MAX_VALUE;
+        // The first iteration always finishes, so there is always a move to return
+        canStop = false;
+        stopped = false;
+        stopRequested = false;
+        previousPv = new int[0];
+        orderer.clear();
+
+        SearchResult result = new SearchResult(0, 0, 0, 0, previousPv);
+        for(int depth = Math.min(startDepth, maxDepth); depth <= maxDepth; ++depth){
+            followPv = true;
+            int score = negamax(depth, 0, -INFINITY, INFINITY);
+            if(stopped) break;
+            previousPv = Arrays.copyOf(pvTable[0], pvLength[0]);
+            result = new SearchResult(score, depth, nodes, System.nanoTime() - start, previousPv);
+            if(onIteration != null) onIteration.accept(result);
+            canStop = true;
+            // A mate found within the full width of this iteration can't be improved on by searching deeper
+            if(previousPv.length == 0 || (result.isMateScore() && MATE - Math.abs(score) <= depth)) break;
+            if(stopRequested || nodes >= nodeLimit || System.nanoTime() >= deadline) break;
+        }
+        this.game = null;
+        return result;
+    }
+
+    /**
+     * Asks a running search to stop. It returns the result of its last completed iteration soon after. Like the other
+     * limits, a stop only takes effect once the first iteration has finished, so there is always a move to return.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        if(depth == 0) return quiescence(ply, alpha, beta);
+        pvLength[ply] = ply;
+        if((++nodes & (CHECK_INTERVAL - 1)) == 0) checkLimits();
+        if(stopped) return 0;
+        if(ply >= MAX_PLY) return game.evaluate();
+
+        long key = game.getZobristKey();
+        int tableMove = PackedMove.NONE;
+        if(table != null){
+            long entry = table.probe(key);
+            if(entry != TranspositionTable.NO_ENTRY){
+                tableMove = TranspositionTable.move(entry);
+                // The root always searches, so there is a principal variation to report
+                if(ply > 0 && TranspositionTable.depth(entry) >= depth){
+                    int score = TranspositionTable.score(entry, ply);
+                    int bound = TranspositionTable.bound(entry);
+                    if(bound == TranspositionTable.EXACT) return score;
+                    if(bound == TranspositionTable.LOWER && score >= beta) return beta;
+                    if(bound == TranspositionTable.UPPER && score <= alpha) return alpha;
+                }
+            }
+        }
+
+        ChessGame.TeamColor side = game.getTeamTurn();
+        MoveList moves = stack.get(ply);
+        MoveGenerator.generateLegalMoves(game, side, moves);
+        if(moves.isEmpty()) return game.isInCheck(side) ? -MATE + ply : 0;
+        int hashMove = tableMove;
+        if(followPv && ply < previousPv.length) hashMove = previousPv[ply];
+        else followPv = false;
+        orderer.score(game, moves, ply, hashMove);
+
+        int originalAlpha = alpha;
+        for(int i = 0; i < moves.size(); ++i){
+            int move = orderer.next(moves, ply, i);
+            int undo = game.doMove(move);
+            int score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            game.undoMove(move, undo);
+            if(stopped) return 0;
+            if(score > alpha){
+                alpha = score;
+                int[] line = pvTable[ply];
+                line[ply] = move;
+                int childLength = pvLength[ply + 1];
+                System.arraycopy(pvTable[ply + 1], ply + 1, line, ply + 1, childLength - ply - 1);
+                pvLength[ply] = Math.max(childLength, ply + 1);
+                if(score >= beta){
+                    orderer.recordCutoff(side, move, ply, depth);
+                    if(table != null) table.store(key, move, beta, depth, TranspositionTable.LOWER, ply);
+                    return beta;
+                }
+            }
+        }
+        if(table != null){
+            if(alpha > originalAlpha) table.store(key, pvTable[ply][ply], alpha, depth, TranspositionTable.EXACT, ply);
+            else table.store(key, PackedMove.NONE, alpha, depth, TranspositionTable.UPPER, ply);
+        }
+        return alpha;
+    }
+
+    /**
+     * Searches only captures and promotions, on top of the side to move's option to stand pat: to stop capturing
+     * and keep the static evaluation. In check there is no standing pat, so every evasion is searched instead.
+     */
+    private int quiescence(int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        if((++nodes & (CHECK_INTERVAL - 1)) == 0) checkLimits();
+        if(stopped) return 0;
+        if(ply >= MAX_PLY) return game.evaluate();
+
+        ChessGame.TeamColor side = game.getTeamTurn();
+        MoveList moves = stack.get(ply);
+        boolean inCheck = game.isInCheck(side);
+        int standPat = -INFINITY;
+        if(inCheck){
+            MoveGenerator.generateLegalMoves(game, side, moves);
+            if(moves.isEmpty()) return -MATE + ply;
+        }else{
+            standPat = game.evaluate();
+            if(standPat >= beta) return beta;
+            if(standPat > alpha) alpha = standPat;
+            MoveGenerator.generateLegalCaptures(game, side, moves);
+        }
+        orderer.score(game, moves, ply, PackedMove.NONE);
+
+        ChessBoard board = game.getBoard();
+        for(int i = 0; i < moves.size(); ++i){
+            int move = orderer.next(moves, ply, i);
+            // Delta pruning: skip captures that couldn't raise alpha even if they won their piece for free
+            if(!inCheck && !PackedMove.isPromotion(move)){
+                ChessPiece.PieceType victim = PackedMove.isEnPassant(move) ? ChessPiece.PieceType.PAWN :
+                        board.pieceTypeAt(PackedMove.to(move));
+                if(standPat + Evaluation.value(victim) + DELTA_MARGIN <= alpha) continue;
+            }
+            int undo = game.doMove(move);
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            game.undoMove(move, undo);
+            if(stopped) return 0;
+            if(score > alpha){
+                alpha = score;
+                if(score >= beta) return beta;
+            }
+        }
+        return alpha;
+    }
+
+    private void checkLimits() {
+        if(canStop && (stopRequested || nodes >= nodeLimit || System.nanoTime() >= deadline)) stopped = true;
+    }
+
+    public static void main(String[] args) {
+        if(args.length < 1){
+            System.out.println("Usage: Search <depth> [fen] [--time <ms>] [--nodes <n>]");
+            return;
+        }
+        int depth = Integer.parseInt(args[0]);
+        long millis = 0, nodeLimit = 0;
+        String fen = Fen.START_POSITION;
+        for(int i = 1; i < args.length; ++i){
+            if(args[i].equals("--time") && i + 1 < args.length) millis = Long.parseLong(args[++i]);
+            else if(args[i].equals("--nodes") && i + 1 < args.length) nodeLimit = Long.parseLong(args[++i]);
+            else fen = args[i];
+        }
+        System.out.println(fen);
+        SearchResult result = new Search().search(Fen.load(fen), new Limits(depth, nodeLimit, millis),
+                System.out::println);
+        System.out.println("best move " + result.getBestMove());
+    }
+}
@@ -0,0 +1,105 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What one completed iteration of a Search found: the best move, its score and the line of play the search expects
+ * to follow it, with the work it took to get there.
+ */
+public final class SearchResult {
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long elapsedNanos;
+    private final int[] principalVariation;
+
+    SearchResult(int score, int depth, long nodes, long elapsedNanos, int[] principalVariation) {
+        this.bestMove = principalVariation.length > 0 ? principalVariation[0] : PackedMove.NONE;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+        this.principalVariation = principalVariation;
+    }
+
+    /**
+     * @return The same result, credited with the nodes and time of a whole group of searches
+     */
+    SearchResult withTotals(long totalNodes, long totalElapsedNanos) {
+        return new SearchResult(score, depth, totalNodes, totalElapsedNanos, principalVariation);
+    }
+
+    /**
+     * @return The move to play, or null if the side to move has no legal move
+     */
+    public ChessMove getBestMove() {
+        return bestMove == PackedMove.NONE ? null : PackedMove.toChessMove(bestMove);
+    }
+
+    /**
+     * @return The move to play as a PackedMove, or PackedMove.NONE
+     */
+    public int getPackedBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * @return The score in centipawns from the side to move's point of view. Mates score close to Search.MATE.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return Whether the score is a forced mate for either side
+     */
+    public boolean isMateScore() {
+        return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+    }
+
+    /**
+     * @return How many plies deep the last completed iteration searched
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return How many positions were visited, over every iteration so far
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getNodesPerSecond() {
+        return (long) (nodes / Math.max(elapsedNanos / 1e9, 1e-9));
+    }
+
+    /**
+     * @return The expected line of play, starting with the best move
+     */
+    public List<ChessMove> getPrincipalVariation() {
+        List<ChessMove> moves = new ArrayList<>(principalVariation.length);
+        for(int move : principalVariation) moves.add(PackedMove.toChessMove(move));
+        return moves;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder bob = new StringBuilder();
+        bob.append("depth ").append(depth);
+        if(isMateScore()){
+            int plies = Search.MATE - Math.abs(score);
+            bob.append(" mate ").append(score > 0 ? (plies + 1) / 2 : -(plies / 2));
+        }else bob.append(" score ").append(score);
+        bob.append(" nodes ").append(nodes).append(" nps ").append(getNodesPerSecond()).append(" pv");
+        for(int move : principalVariation) bob.append(' ').append(PackedMove.toString(move));
+        return bob.toString();
+    }
+}
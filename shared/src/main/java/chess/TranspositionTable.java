@@ -0,0 +1,117 @@
+package chess;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Remembers what Search learned about positions it has already visited, keyed by Zobrist key: the best move found,
+ * the score, how deep it was searched and whether the score is exact or only a bound. Any number of search threads
+ * can share one table without locking.
+ * <p>
+ * Each entry is two longs in one AtomicLongArray: the packed data, and the position key XORed with that data. A
+ * reader only trusts the data if XORing the two words gives back the key it is looking for, so an entry torn by two
+ * threads writing at once, or one left by a different position in the same slot, is simply a miss.
+ * <p>
+ * Data layout (low bits first):
+ * <ul>
+ *     <li>bits 0-17: the best move as a PackedMove, or PackedMove.NONE</li>
+ *     <li>bits 18-33: the score, offset by 2^15</li>
+ *     <li>bits 34-41: the search depth</li>
+ *     <li>bits 42-43: the bound, EXACT, LOWER or UPPER</li>
+ * </ul>
+ * The bound is never 0, so stored data never is, and NO_ENTRY can stand for a miss.
+ */
+public final class TranspositionTable {
+    public static final long NO_ENTRY = 0;
+
+    /** The score is the position's exact value */
+    static final int EXACT = 1;
+    /** The search failed high, so the value is at least the score */
+    static final int LOWER = 2;
+    /** The search failed low, so the value is at most the score */
+    static final int UPPER = 3;
+
+    private static final int ENTRY_BYTES = 16;
+
+    private final AtomicLongArray words;
+    private final int mask;
+
+    /**
+     * @param megabytes Roughly how much memory to use, rounded down to a power of two number of entries
+     */
+    public TranspositionTable(int megabytes) {
+        long entries = Math.max(1, (long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+        int size = (int) Long.highestOneBit(Math.min(entries, 1 << 29));
+        words = new AtomicLongArray(size * 2);
+        mask = size - 1;
+    }
+
+    /**
+     * @return How many entries the table holds
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @param key The position's Zobrist key
+     * @return The entry's packed data, or NO_ENTRY if the table holds nothing for this position
+     */
+    long probe(long key) {
+        int index = (int) key & mask;
+        long data = words.get(2 * index + 1);
+        long check = words.get(2 * index);
+        return (check ^ data) == key ? data : NO_ENTRY;
+    }
+
+    /**
+     * Stores what a search found, replacing the slot's entry unless it holds a deeper search of the same position
+     *
+     * @param key The position's Zobrist key
+     * @param move The best move found, or PackedMove.NONE
+     * @param score The score from the side to move's point of view
+     * @param depth How many plies deep the position was searched
+     * @param bound EXACT, LOWER or UPPER
+     * @param ply How far the position is from the search root, so mate scores can be stored relative to it
+     */
+    void store(long key, int move, int score, int depth, int bound, int ply) {
+        int index = (int) key & mask;
+        long old = words.get(2 * index + 1);
+        if((words.get(2 * index) ^ old) == key && depth(old) > depth && bound != EXACT) return;
+        // Mates are stored as distance from this position, so they stay right when reached from another ply
+        if(score >= Search.MATE - Search.MAX_PLY) score += ply;
+        else if(score <= -Search.MATE + Search.MAX_PLY) score -= ply;
+        long data = (move & 0x3FFFFL) | ((long) (score + 0x8000) << 18) | ((long) depth << 34) | ((long) bound << 42);
+        words.set(2 * index, key ^ data);
+        words.set(2 * index + 1, data);
+    }
+
+    /**
+     * Empties every entry
+     */
+    public void clear() {
+        for(int i = 0; i < words.length(); ++i) words.set(i, 0);
+    }
+
+    static int move(long data) {
+        return (int) (data & 0x3FFFF);
+    }
+
+    /**
+     * @param ply How far the probing position is from the search root
+     * @return The stored score, with mates measured from the root again
+     */
+    static int score(long data, int ply) {
+        int score = (int) ((data >>> 18) & 0xFFFF) - 0x8000;
+        if(score >= Search.MATE - Search.MAX_PLY) return score - ply;
+        if(score <= -Search.MATE + Search.MAX_PLY) return score + ply;
+        return score;
+    }
+
+    static int depth(long data) {
+        return (int) ((data >>> 34) & 0xFF);
+    }
+
+    static int bound(long data) {
+        return (int) ((data >>> 42) & 0x3);
+    }
+}
@@ -0,0 +1,60 @@
+package chess;
+
+/**
+ * Packs everything ChessGame.undoMove() needs to reverse a ChessGame.doMove() into a single int, so legality testing
+ * can make and unmake moves without allocating anything or copying the board.
+ * <p>
+ * Layout (low bits first):
+ * <ul>
+ *     <li>bits 0-3: the captured piece as 1 + 6 * TeamColor ordinal + PieceType ordinal, or 0 for no capture</li>
+ *     <li>bits 4-10: the en passant target square before the move (0-63), or 64 for none</li>
+ *     <li>bit 11: whose turn it was before the move (TeamColor ordinal)</li>
+ *     <li>bits 12-15: the castling rights before the move</li>
+ * </ul>
+ */
+final class UndoRecord {
+    static final int NO_SQUARE = 64;
+
+    private static final ChessPiece.PieceType[] PIECE_TYPES = ChessPiece.PieceType.values();
+    private static final ChessGame.TeamColor[] TEAM_COLORS = ChessGame.TeamColor.values();
+
+    private UndoRecord() {}
+
+    /**
+     * @param capturedColor Team of the captured piece, or null if nothing was captured
+     * @param capturedType Type of the captured piece, or null if nothing was captured
+     * @param enPassantSquare Bitboard index of the en passant target before the move, or NO_SQUARE
+     * @param turn Whose turn it was before the move
+     * @param castlingRights The Castling rights before the move
+     * @return The packed record
+     */
+    static int pack(ChessGame.TeamColor capturedColor, ChessPiece.PieceType capturedType, int enPassantSquare,
+                    ChessGame.TeamColor turn, int castlingRights) {
+        int captured = capturedType == null ? 0 : 1 + capturedColor.ordinal() * 6 + capturedType.ordinal();
+        return captured | (enPassantSquare << 4) | (turn.ordinal() << 11) | (castlingRights << 12);
+    }
+
+    static boolean hasCapture(int record) {
+        return (record & 0xF) != 0;
+    }
+
+    static ChessGame.TeamColor capturedColor(int record) {
+        return TEAM_COLORS[((record & 0xF) - 1) / 6];
+    }
+
+    static ChessPiece.PieceType capturedType(int record) {
+        return PIECE_TYPES[((record & 0xF) - 1) % 6];
+    }
+
+    static int enPassantSquare(int record) {
+        return (record >>> 4) & 0x7F;
+    }
+
+    static ChessGame.TeamColor turn(int record) {
+        return TEAM_COLORS[(record >>> 11) & 1];
+    }
+
+    static int castlingRights(int record) {
+        return (record >>> 12) & 0xF;
+    }
+}
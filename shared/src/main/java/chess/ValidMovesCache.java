@@ -0,0 +1,152 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of validMoves() results, keyed by a game's Zobrist key and the start square. Clients ask for the
+ * moves of the same squares of the same position over and over (highlighting pieces, bots probing, the server
+ * re-checking a move), and every game in the same position shares the entries.
+ * <p>
+ * The cache is split into stripes, each an LRU map behind its own lock, so threads serving different games rarely wait
+ * on each other. When a stripe is full its least recently used entry is evicted. Entries describe a position rather
+ * than a game, so moving never has to invalidate anything: the next position simply has a different key. Each entry
+ * also keeps a copy of the board, castling rights and en passant square it was computed for, and a hit is only used if
+ * they match, so a key collision or a stale key can never return another position's moves.
+ * <p>
+ * Moves are stored as PackedMoves and turned into new ChessMoves on every hit, so no caller can change the moves
+ * another caller gets back.
+ */
+public final class ValidMovesCache {
+    /**
+     * The cache every ChessGame uses unless it is given its own. Each entry holds a copy of a board, so this is kept
+     * to a few thousand entries; servers that want more can give their games a bigger cache.
+     */
+    public static final ValidMovesCache SHARED = new ValidMovesCache(1 << 12, 16);
+
+    private final Stripe[] stripes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacity The most entries to hold in total
+     * @param stripeCount How many independently locked parts to split the cache into, rounded up to a power of two
+     */
+    public ValidMovesCache(int capacity, int stripeCount) {
+        if(capacity < 1 || stripeCount < 1){
+            throw new IllegalArgumentException("Capacity and stripe count must be positive");
+        }
+        int count = Integer.bitCount(stripeCount) == 1 ? stripeCount : Integer.highestOneBit(stripeCount) << 1;
+        stripes = new Stripe[count];
+        int perStripe = Math.max(1, capacity / count);
+        for(int i = 0; i < count; ++i) stripes[i] = new Stripe(perStripe);
+    }
+
+    private record Key(long zobristKey, int square) {}
+
+    private record Entry(ChessBoard board, int castlingRights, int enPassantSquare, int[] moves) {}
+
+    private static final class Stripe extends LinkedHashMap<Key, Entry> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    private Stripe stripeFor(long zobristKey, int square) {
+        // The low bits of the key pick the entry's hash bucket, so the stripe comes from the high bits
+        return stripes[(int) (zobristKey >>> 40 ^ square) & (stripes.length - 1)];
+    }
+
+    private static int enPassantSquare(ChessGame game) {
+        return game.enPassantTarget == null ? -1 : ChessBoard.toSquare(game.enPassantTarget);
+    }
+
+    /**
+     * Looks up the legal moves of the piece on a square
+     *
+     * @return A new list of the cached moves, or null if this position and square aren't cached
+     */
+    Collection<ChessMove> get(ChessGame game, int square) {
+        Stripe stripe = stripeFor(game.zobristKey, square);
+        Entry entry;
+        synchronized(stripe){
+            entry = stripe.get(new Key(game.zobristKey, square));
+        }
+        if(entry == null || entry.enPassantSquare() != enPassantSquare(game) ||
+                entry.castlingRights() != game.castlingRights ||
+                !entry.board().equals(game.boardState)){
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        ArrayList<ChessMove> moves = new ArrayList<>(entry.moves().length);
+        for(int move : entry.moves()) moves.add(PackedMove.toChessMove(move));
+        return moves;
+    }
+
+    /**
+     * Stores the legal moves of the piece on a square of the game's current position
+     */
+    void put(ChessGame game, int square, MoveList moves) {
+        int[] packed = new int[moves.size()];
+        for(int i = 0; i < packed.length; ++i) packed[i] = moves.get(i);
+        Entry entry = new Entry(new ChessBoard(game.boardState), game.castlingRights, enPassantSquare(game), packed);
+        Stripe stripe = stripeFor(game.zobristKey, square);
+        synchronized(stripe){
+            stripe.put(new Key(game.zobristKey, square), entry);
+        }
+    }
+
+    /**
+     * Empties the cache and resets the hit and miss counts
+     */
+    public void clear() {
+        for(Stripe stripe : stripes){
+            synchronized(stripe){
+                stripe.clear();
+            }
+        }
+        hits.reset();
+        misses.reset();
+    }
+
+    /**
+     * @return How many entries the cache currently holds
+     */
+    public int size() {
+        int size = 0;
+        for(Stripe stripe : stripes){
+            synchronized(stripe){
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return How many lookups found their moves in the cache since it was created or last cleared
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return How many lookups had to generate their moves since the cache was created or last cleared
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+}
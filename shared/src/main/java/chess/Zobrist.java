@@ -0,0 +1,114 @@
+package chess;
+
+/**
+ * Zobrist hashing gives every (piece, square) pair, the side to move, each castling right and each en passant file a
+ * fixed random 64-bit key, and hashes a position as the XOR of the keys of everything in it. Because XOR undoes itself,
+ * a move only has to XOR out what it removes and XOR in what it adds, which is how ChessGame keeps its key current on
+ * every move.
+ * <p>
+ * The keys come from a fixed seed, so the same position hashes to the same value in every JVM and can be used as a
+ * cache key between services.
+ */
+public final class Zobrist {
+    private static final long SEED = 0x2545F4914F6CDD1DL;
+
+    // Indexed by [6 * TeamColor ordinal + PieceType ordinal][square]
+    private static final long[][] PIECE_KEYS = new long[12][64];
+    private static final long[] EN_PASSANT_FILE_KEYS = new long[8];
+    static final long BLACK_TO_MOVE;
+    // Indexed by the packed Castling rights, each entry the XOR of the keys of the rights it holds
+    private static final long[] CASTLING_KEYS = new long[16];
+
+    static {
+        long state = SEED;
+        for(long[] pieceKeys : PIECE_KEYS){
+            for(int square = 0; square < 64; ++square){
+                state += 0x9E3779B97F4A7C15L;
+                pieceKeys[square] = mix(state);
+            }
+        }
+        for(int file = 0; file < 8; ++file){
+            state += 0x9E3779B97F4A7C15L;
+            EN_PASSANT_FILE_KEYS[file] = mix(state);
+        }
+        state += 0x9E3779B97F4A7C15L;
+        BLACK_TO_MOVE = mix(state);
+        for(int right = 0; right < 4; ++right){
+            state += 0x9E3779B97F4A7C15L;
+            long key = mix(state);
+            for(int rights = 0; rights < 16; ++rights){
+                if((rights & (1 << right)) != 0) CASTLING_KEYS[rights] ^= key;
+            }
+        }
+    }
+
+    private Zobrist() {}
+
+    // The SplitMix64 finalizer, written out so the keys never depend on a library's random number generator
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return The key for a piece of the given team and type standing on a square
+     */
+    static long pieceKey(ChessGame.TeamColor color, ChessPiece.PieceType type, int square) {
+        return PIECE_KEYS[color.ordinal() * 6 + type.ordinal()][square];
+    }
+
+    /**
+     * @param castlingRights Packed Castling rights
+     * @return The key for that set of rights, 0 for none
+     */
+    static long castlingKey(int castlingRights) {
+        return CASTLING_KEYS[castlingRights];
+    }
+
+    /**
+     * The en passant file is only hashed when an enemy pawn actually stands next to the pawn that just double moved,
+     * so positions that can't differ in their legal moves don't differ in their keys either.
+     *
+     * @return The key for the game's en passant state, or 0 if no en passant capture is possible
+     */
+    static long enPassantKey(ChessGame game) {
+        ChessPosition target = game.enPassantTarget;
+        if(target == null) return 0;
+        ChessBoard board = game.getBoard();
+        // The pawn stands one row past the target, away from its own side: rank 4 for white, rank 5 for black
+        int square = target.getRow() == 3 ? ChessBoard.toSquare(target) + 8 : ChessBoard.toSquare(target) - 8;
+        ChessGame.TeamColor pawnColor = board.teamAt(square);
+        if(pawnColor == null) return 0;
+        long capturers = board.getPieces(pawnColor == ChessGame.TeamColor.WHITE ?
+                ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
+        int column = square % 8;
+        boolean capturable = (column > 0 && (capturers & (1L << (square - 1))) != 0) ||
+                (column < 7 && (capturers & (1L << (square + 1))) != 0);
+        return capturable ? EN_PASSANT_FILE_KEYS[column] : 0;
+    }
+
+    /**
+     * Computes a game's key from scratch. ChessGame keeps its key up to date incrementally, so this is only needed
+     * when a whole new position is loaded, or to check the incremental key.
+     *
+     * @param game The game to hash
+     * @return The Zobrist key of the game's position, side to move, castling rights and en passant state
+     */
+    public static long hash(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        long key = 0;
+        for(ChessGame.TeamColor color : ChessGame.TeamColor.values()){
+            for(ChessPiece.PieceType type : ChessPiece.PieceType.values()){
+                long pieces = board.getPieces(color, type);
+                while(pieces != 0){
+                    key ^= pieceKey(color, type, Long.numberOfTrailingZeros(pieces));
+                    pieces &= pieces - 1;
+                }
+            }
+        }
+        if(game.getTeamTurn() == ChessGame.TeamColor.BLACK) key ^= BLACK_TO_MOVE;
+        key ^= castlingKey(game.castlingRights);
+        return key ^ enPassantKey(game);
+    }
+}
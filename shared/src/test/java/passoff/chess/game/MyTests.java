@@ -9,6 +9,9 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
 import passoff.chess.TestUtilities;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+
 public class MyTests {
     private static final String WRONG_BOARD = "Board not correct after move made";
     private ChessGame game;
@@ -383,4 +386,735 @@ public class MyTests {
         Assertions.assertEquals(promotionType, blackEndPiece.getPieceType(), incorrectType);
         Assertions.assertEquals(ChessGame.TeamColor.BLACK, blackEndPiece.getTeamColor(), incorrectColor);
     }
+
+    @Test
+    @DisplayName("Do And Undo Move Restore Game")
+    public void doUndoMoveRestoresGame() throws InvalidMoveException {
+        game.setBoard(TestUtilities.loadBoard("""
+                |r| | | |k| | |r|
+                |p|P|p| |q|p|b| |
+                |b|n| | |p|n|p| |
+                | | | |P|N| | | |
+                | |p| | |P| | | |
+                | | |N| | |Q| |p|
+                |P|P|P|B|B|P|P|P|
+                |R| | | |K| | |R|
+                """));
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        game.makeMove(new ChessMove(new ChessPosition(7, 3), new ChessPosition(5, 3), null));
+
+        ChessBoard originalBoard = new ChessBoard(game.getBoard());
+        var originalWhiteSquares = new HashSet<>(game.getWhitePieceSquares());
+        var originalBlackSquares = new HashSet<>(game.getBlackPieceSquares());
+        for(int row = 1; row <= 8; ++row){
+            for(int col = 1; col <= 8; ++col){
+                ChessPosition position = new ChessPosition(row, col);
+                if(game.getBoard().getPiece(position) == null) continue;
+                for(ChessMove move : game.validMoves(position)){
+                    int undo = game.doMove(move);
+                    game.undoMove(move, undo);
+                    Assertions.assertEquals(originalBoard, game.getBoard(), "Board not restored after " + move);
+                    Assertions.assertEquals(ChessGame.TeamColor.WHITE, game.getTeamTurn(),
+                            "Team turn not restored after " + move);
+                    Assertions.assertEquals(originalWhiteSquares, new HashSet<>(game.getWhitePieceSquares()));
+                    Assertions.assertEquals(originalBlackSquares, new HashSet<>(game.getBlackPieceSquares()));
+                }
+            }
+        }
+
+        //the en passant capture set up by black's double move must still be available afterwards
+        Assertions.assertTrue(game.validMoves(new ChessPosition(5, 4)).contains(
+                new ChessMove(new ChessPosition(5, 4), new ChessPosition(6, 3), null)));
+    }
+
+    @Test
+    @DisplayName("Square Attacked By Each Piece Type")
+    public void squareAttacked() {
+        ChessBoard board = TestUtilities.loadBoard("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | |p| | | | | |
+                | | | | | | | | |
+                |q| | |P| | |n| |
+                | | | | | | | | |
+                | |b| | | | | | |
+                | | | |K| | |r| |
+                """);
+        ChessGame.TeamColor black = ChessGame.TeamColor.BLACK;
+
+        Assertions.assertTrue(board.isSquareAttacked(new ChessPosition(5, 2), black), "pawn diagonal");
+        Assertions.assertFalse(board.isSquareAttacked(new ChessPosition(5, 3), black), "pawn push is not an attack");
+        Assertions.assertTrue(board.isSquareAttacked(new ChessPosition(2, 6), black), "knight jump");
+        Assertions.assertTrue(board.isSquareAttacked(new ChessPosition(7, 4), black), "king step");
+        Assertions.assertTrue(board.isSquareAttacked(new ChessPosition(1, 4), black), "rook along the first row");
+        Assertions.assertTrue(board.isSquareAttacked(new ChessPosition(4, 4), black), "queen behind the bishop ray");
+        Assertions.assertFalse(board.isSquareAttacked(new ChessPosition(4, 5), black), "queen blocked by pawn");
+        Assertions.assertTrue(board.isSquareAttacked(new ChessPosition(5, 5), ChessGame.TeamColor.WHITE),
+                "white pawn diagonal");
+        Assertions.assertFalse(board.isSquareAttacked(new ChessPosition(8, 8), black), "own team's pieces only");
+    }
+
+    @Test
+    @DisplayName("King Positions Tracked")
+    public void kingPositionsTracked() throws InvalidMoveException {
+        Assertions.assertEquals(new ChessPosition(1, 5), game.getKingPosition(ChessGame.TeamColor.WHITE));
+        Assertions.assertEquals(new ChessPosition(8, 5), game.getKingPosition(ChessGame.TeamColor.BLACK));
+
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(1, 5), new ChessPosition(2, 5), null));
+        Assertions.assertEquals(new ChessPosition(2, 5), game.getKingPosition(ChessGame.TeamColor.WHITE));
+
+        game.setBoard(TestUtilities.loadBoard("""
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | |k| |
+                |K| | | | | | | |
+                """));
+        Assertions.assertEquals(new ChessPosition(1, 1), game.getKingPosition(ChessGame.TeamColor.WHITE));
+        Assertions.assertEquals(new ChessPosition(2, 7), game.getKingPosition(ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    @DisplayName("Legal Generator Matches Trial Filtering")
+    public void legalGeneratorMatchesTrial() {
+        String[] boards = {"""
+                |r| | | |k| | |r|
+                |p| |p|p|q|p|b| |
+                |b|n| | |p|n|p| |
+                | | | |P|N| | | |
+                | |p| | |P| | | |
+                | | |N| | |Q| |p|
+                |P|P|P|B|B|P|P|P|
+                |R| | | |K| | |R|
+                """, """
+                | | | | | | | | |
+                | | |p| | | | | |
+                | | | |p| | | | |
+                |K|P| | | | | |r|
+                | |R| | | |p| |k|
+                | | | | | | | | |
+                | | | | |P| |P| |
+                | | | | | | | | |
+                """, """
+                | | | |k| | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                |K| | |P|p| | |q|
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | |R| | | | |
+                """};
+        for(String board : boards){
+            game.setBoard(TestUtilities.loadBoard(board));
+            game.setTeamTurn(ChessGame.TeamColor.WHITE);
+            compareGenerationModes(2);
+        }
+    }
+
+    private void compareGenerationModes(int depth) {
+        for(ChessGame.TeamColor color : ChessGame.TeamColor.values()){
+            game.setMoveGenerationMode(ChessGame.MoveGenerationMode.TRIAL);
+            var trialMoves = new HashSet<>(game.validTeamMoves(color));
+            game.setMoveGenerationMode(ChessGame.MoveGenerationMode.LEGAL);
+            var legalMoves = new HashSet<>(game.validTeamMoves(color));
+            Assertions.assertEquals(trialMoves, legalMoves, "Generators disagree on\n" + game.getBoard());
+        }
+        if(depth == 0) return;
+        for(ChessMove move : game.validTeamMoves(game.getTeamTurn())){
+            int undo = game.doMove(move);
+            compareGenerationModes(depth - 1);
+            game.undoMove(move, undo);
+        }
+    }
+
+    @Test
+    @DisplayName("Zobrist Key Updated Incrementally")
+    public void zobristKeyIncremental() throws InvalidMoveException {
+        long startKey = game.getZobristKey();
+        Assertions.assertEquals(Zobrist.hash(game), startKey);
+
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        Assertions.assertNotEquals(startKey, game.getZobristKey(), "Side to move not hashed");
+        game.setTeamTurn(ChessGame.TeamColor.WHITE);
+        Assertions.assertEquals(startKey, game.getZobristKey());
+
+        //the same position reached by two move orders has the same key
+        ChessGame transposed = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+        game.makeMove(new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null));
+        game.makeMove(new ChessMove(new ChessPosition(1, 2), new ChessPosition(3, 3), null));
+        transposed.makeMove(new ChessMove(new ChessPosition(1, 2), new ChessPosition(3, 3), null));
+        transposed.makeMove(new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null));
+        transposed.makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+        Assertions.assertEquals(game.getZobristKey(), transposed.getZobristKey());
+
+        for(String fen : new String[]{Fen.START_POSITION, "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1",
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"}){
+            ChessGame loaded = Fen.load(fen);
+            Assertions.assertEquals(Zobrist.hash(loaded), loaded.getZobristKey(), "Wrong key after loading " + fen);
+            compareZobristKeys(loaded, 3);
+        }
+    }
+
+    @Test
+    @DisplayName("Castling Rights")
+    public void castlingRights() throws InvalidMoveException {
+        String fen = "r3k2r/8/8/8/8/8/6b1/R3K2R w KQkq - 0 1";
+        ChessGame game = Fen.load(fen);
+        Assertions.assertEquals(fen, Fen.toFen(game));
+
+        // The bishop takes the h1 rook, which costs white the kingside castle only
+        game.changeTeamTurn();
+        ChessMove capture = new ChessMove(new ChessPosition(2, 7), new ChessPosition(1, 8), null);
+        int undo = game.doMove(capture);
+        Assertions.assertFalse(game.hasCastlingRight(ChessGame.TeamColor.WHITE, true));
+        Assertions.assertTrue(game.hasCastlingRight(ChessGame.TeamColor.WHITE, false));
+        Assertions.assertEquals(Zobrist.hash(game), game.getZobristKey());
+        game.undoMove(capture, undo);
+        Assertions.assertTrue(game.hasCastlingRight(ChessGame.TeamColor.WHITE, true));
+        game.changeTeamTurn();
+
+        game.makeMove(new ChessMove(new ChessPosition(1, 5), new ChessPosition(1, 3), null));
+        Assertions.assertEquals("r3k2r/8/8/8/8/8/6b1/2KR3R b kq - 0 1", Fen.toFen(game));
+        Assertions.assertEquals(Zobrist.hash(game), game.getZobristKey());
+
+        // Loading a board without a FEN gives the rights the home squares allow
+        ChessGame fresh = new ChessGame();
+        fresh.setBoard(game.getBoard());
+        Assertions.assertFalse(fresh.hasCastlingRight(ChessGame.TeamColor.WHITE, true));
+        Assertions.assertTrue(fresh.hasCastlingRight(ChessGame.TeamColor.BLACK, false));
+    }
+
+    private void compareZobristKeys(ChessGame game, int depth) {
+        long key = game.getZobristKey();
+        Assertions.assertEquals(Zobrist.hash(game), key, "Incremental key drifted in " + Fen.toFen(game));
+        if(depth == 0) return;
+        for(ChessMove move : game.validTeamMoves(game.getTeamTurn())){
+            int undo = game.doMove(move);
+            compareZobristKeys(game, depth - 1);
+            game.undoMove(move, undo);
+            Assertions.assertEquals(key, game.getZobristKey(), "Key not restored after " + move);
+        }
+    }
+
+    @Test
+    @DisplayName("Valid Moves Cache")
+    public void validMovesCache() throws InvalidMoveException {
+        ValidMovesCache cache = new ValidMovesCache(4, 2);
+        game.setValidMovesCache(cache);
+        ChessGame observer = new ChessGame();
+        observer.setValidMovesCache(cache);
+
+        ChessPosition knight = new ChessPosition(1, 2);
+        var firstMoves = new HashSet<>(game.validMoves(knight));
+        Assertions.assertEquals(0, cache.getHits());
+        Assertions.assertEquals(firstMoves, new HashSet<>(observer.validMoves(knight)));
+        Assertions.assertEquals(1, cache.getHits(), "Same position in another game should hit");
+
+        // Every hit builds its own moves, so changing one caller's move can't change another's
+        observer.validMoves(knight).forEach(move -> move.setIsEnPassant(true));
+        for(ChessMove move : game.validMoves(knight)) Assertions.assertFalse(move.isEnPassant());
+        Assertions.assertEquals(3, cache.getHits());
+
+        //after a move the position has a new key, and the results must match an uncached game
+        ChessGame uncached = new ChessGame();
+        uncached.setValidMovesCache(null);
+        ChessMove[] moves = {new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null),
+                new ChessMove(new ChessPosition(7, 1), new ChessPosition(5, 1), null),
+                new ChessMove(new ChessPosition(4, 5), new ChessPosition(5, 5), null),
+                new ChessMove(new ChessPosition(7, 4), new ChessPosition(5, 4), null)};
+        for(ChessMove move : moves){
+            game.makeMove(move);
+            uncached.makeMove(move);
+            for(int row = 1; row <= 8; ++row){
+                for(int col = 1; col <= 8; ++col){
+                    ChessPosition square = new ChessPosition(row, col);
+                    if(uncached.getBoard().getPiece(square) == null) continue;
+                    Assertions.assertEquals(new HashSet<>(uncached.validMoves(square)),
+                            new HashSet<>(game.validMoves(square)), "Cached moves differ at " + square);
+                }
+            }
+        }
+        Assertions.assertTrue(game.validMoves(new ChessPosition(5, 5)).contains(
+                new ChessMove(new ChessPosition(5, 5), new ChessPosition(6, 4), null)), "En passant missing");
+        Assertions.assertTrue(cache.size() <= 4, "Cache grew past its capacity");
+
+        cache.clear();
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    @DisplayName("Shared Position Table")
+    public void sharedPositionTable() {
+        Assertions.assertSame(ChessPosition.of(4, 5), ChessPosition.of(4, 5));
+        Assertions.assertSame(ChessPosition.of(4, 5), ChessPosition.of(28));
+        Assertions.assertEquals(new ChessPosition(4, 5), ChessPosition.of(4, 5));
+        Assertions.assertEquals(new ChessPosition(4, 5).hashCode(), ChessPosition.of(28).hashCode());
+        Assertions.assertEquals(28, ChessPosition.of(4, 5).getSquare());
+        Assertions.assertEquals("e4", ChessPosition.of(28).toString());
+        Assertions.assertEquals(0, ChessPosition.of(1, 1).getSquare());
+        Assertions.assertEquals(63, ChessPosition.of(8, 8).getSquare());
+
+        ChessPosition offBoard = ChessPosition.of(0, 9);
+        Assertions.assertEquals(0, offBoard.getRow());
+        Assertions.assertEquals(9, offBoard.getColumn());
+    }
+
+    @Test
+    @DisplayName("Packed Moves Round Trip")
+    public void packedMovesRoundTrip() throws InvalidMoveException {
+        ChessGame kiwipete = Fen.load("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w - - 0 1");
+        kiwipete.makeMove(new ChessMove(new ChessPosition(2, 1), new ChessPosition(4, 1), null));
+        MoveList packed = new MoveList(4);
+        MoveGenerator.generateLegalMoves(kiwipete, kiwipete.getTeamTurn(), packed);
+        var chessMoves = new HashSet<>(kiwipete.validTeamMoves(kiwipete.getTeamTurn()));
+        Assertions.assertEquals(chessMoves, new HashSet<>(packed.toChessMoves()));
+
+        String fen = Fen.toFen(kiwipete);
+        boolean sawEnPassant = false;
+        for(int i = 0; i < packed.size(); ++i){
+            int move = packed.get(i);
+            ChessMove chessMove = PackedMove.toChessMove(move);
+            Assertions.assertEquals(move, PackedMove.fromChessMove(chessMove, kiwipete.getBoard()));
+            Assertions.assertEquals(kiwipete.getBoard().getPiece(chessMove.getEndPosition()) != null ||
+                    chessMove.isEnPassant(), PackedMove.isCapture(move), "Wrong capture flag on " + chessMove);
+            sawEnPassant |= PackedMove.isEnPassant(move);
+
+            int undo = kiwipete.doMove(move);
+            kiwipete.undoMove(move, undo);
+            Assertions.assertEquals(fen, Fen.toFen(kiwipete), "Not restored after " + chessMove);
+        }
+        Assertions.assertTrue(sawEnPassant, "b4xa3 en passant not generated");
+    }
+
+    @Test
+    @DisplayName("Move Stack Reuses Lists")
+    public void moveStackReusesLists() {
+        MoveStack stack = new MoveStack(1);
+        MoveList root = stack.get(0);
+        MoveGenerator.generateLegalMoves(game, ChessGame.TeamColor.WHITE, root);
+        Assertions.assertEquals(20, root.size());
+
+        MoveList deep = stack.get(5);
+        Assertions.assertTrue(deep.isEmpty());
+        Assertions.assertSame(root, stack.get(0), "Ply list not reused");
+        Assertions.assertTrue(root.isEmpty(), "Ply list not cleared for reuse");
+        Assertions.assertSame(deep, stack.get(5));
+    }
+
+    @Test
+    @DisplayName("Early Exit Move Check Matches Generation")
+    public void hasLegalMoveMatchesGeneration() {
+        String[] fens = {"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w - - 0 1",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                //black can only escape check by capturing en passant
+                "8/8/8/2k5/3Pp3/8/8/3RK2B b - d3 0 1",
+                "7k/5Q2/6K1/8/8/8/8/8 b - - 0 1",
+                "7k/6Q1/6K1/8/8/8/8/8 b - - 0 1"};
+        for(String fen : fens) compareMobility(Fen.load(fen), 2);
+
+        Assertions.assertEquals(ChessGame.Outcome.STALEMATE, Fen.load(fens[3]).getOutcome(ChessGame.TeamColor.BLACK));
+        Assertions.assertEquals(ChessGame.Outcome.CHECKMATE, Fen.load(fens[4]).getOutcome(ChessGame.TeamColor.BLACK));
+        Assertions.assertEquals(ChessGame.Outcome.ONGOING, Fen.load(fens[2]).getOutcome(ChessGame.TeamColor.BLACK));
+    }
+
+    private void compareMobility(ChessGame game, int depth) {
+        for(ChessGame.TeamColor color : ChessGame.TeamColor.values()){
+            Assertions.assertEquals(!game.validTeamMoves(color).isEmpty(), game.hasAnyLegalMove(color),
+                    "Mobility wrong for " + color + " in " + Fen.toFen(game));
+        }
+        if(depth == 0) return;
+        for(ChessMove move : game.validTeamMoves(game.getTeamTurn())){
+            int undo = game.doMove(move);
+            compareMobility(game, depth - 1);
+            game.undoMove(move, undo);
+        }
+    }
+
+    @Test
+    @DisplayName("Game Status")
+    public void gameStatus() throws InvalidMoveException {
+        GameStatus status = game.getStatus();
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, status.getSideToMove());
+        Assertions.assertEquals(20, status.getLegalMoveCount());
+        Assertions.assertFalse(status.isInCheck());
+        Assertions.assertFalse(status.isGameOver());
+        Assertions.assertSame(status, game.getStatus(), "Status not cached");
+
+        //fool's mate
+        game.makeMove(new ChessMove(new ChessPosition(2, 6), new ChessPosition(3, 6), null));
+        Assertions.assertNotSame(status, game.getStatus(), "Status not refreshed after a move");
+        game.makeMove(new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(2, 7), new ChessPosition(4, 7), null));
+        game.makeMove(new ChessMove(new ChessPosition(8, 4), new ChessPosition(4, 8), null));
+        status = game.getStatus();
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, status.getSideToMove());
+        Assertions.assertTrue(status.isInCheck());
+        Assertions.assertTrue(status.isCheckmate());
+        Assertions.assertFalse(status.isStalemate());
+        Assertions.assertEquals(0, status.getLegalMoveCount());
+        Assertions.assertTrue(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+
+        game.setBoard(TestUtilities.loadBoard("""
+                | | | | | | | |k|
+                | | | | | |Q| | |
+                | | | | | | |K| |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                """));
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        status = game.getStatus();
+        Assertions.assertTrue(status.isStalemate(), "Status kept after setBoard");
+        Assertions.assertEquals(ChessGame.Outcome.STALEMATE, status.getOutcome());
+    }
+
+    @Test
+    @DisplayName("Piece Lists Follow The Board")
+    public void pieceListsFollowBoard() {
+        ChessGame kiwipete = Fen.load("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w - - 0 1");
+        var whiteSquares = kiwipete.whitePieceSquaresView();
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> whiteSquares.add(new ChessPosition(4, 4)));
+        // The getters hand out copies the caller is free to change
+        ArrayList<ChessPosition> copy = kiwipete.getWhitePieceSquares();
+        copy.clear();
+        Assertions.assertEquals(16, kiwipete.getWhitePieceSquares().size());
+        comparePieceLists(kiwipete, 3);
+        Assertions.assertEquals(16, whiteSquares.size());
+    }
+
+    private void comparePieceLists(ChessGame game, int depth) {
+        for(ChessGame.TeamColor color : ChessGame.TeamColor.values()){
+            var expected = new HashSet<ChessPosition>();
+            for(int row = 1; row <= 8; ++row){
+                for(int col = 1; col <= 8; ++col){
+                    ChessPiece piece = game.getBoard().getPiece(new ChessPosition(row, col));
+                    if(piece != null && piece.getTeamColor() == color) expected.add(new ChessPosition(row, col));
+                }
+            }
+            var tracked = color == ChessGame.TeamColor.WHITE ? game.whitePieceSquaresView() :
+                    game.blackPieceSquaresView();
+            Assertions.assertEquals(expected.size(), tracked.size(), "Duplicate squares in " + Fen.toFen(game));
+            Assertions.assertEquals(expected, new HashSet<>(tracked), "Piece list wrong in " + Fen.toFen(game));
+        }
+        if(depth == 0) return;
+        for(ChessMove move : game.validTeamMoves(game.getTeamTurn())){
+            int undo = game.doMove(move);
+            comparePieceLists(game, depth - 1);
+            game.undoMove(move, undo);
+        }
+    }
+
+    @Test
+    @DisplayName("Precomputed Attack Tables")
+    public void precomputedAttackTables() {
+        int[][] knightOffsets = {{1, 2},{2, 1},{2, -1},{1, -2},{-1, -2},{-2, -1},{-2, 1},{-1, 2}};
+        for(int square = 0; square < 64; ++square){
+            int row = square / 8, col = square % 8;
+            long knight = 0, king = 0;
+            for(int[] offset : knightOffsets){
+                int r = row + offset[0], c = col + offset[1];
+                if(r >= 0 && r < 8 && c >= 0 && c < 8) knight |= 1L << (r * 8 + c);
+            }
+            for(int dr = -1; dr <= 1; ++dr){
+                for(int dc = -1; dc <= 1; ++dc){
+                    int r = row + dr, c = col + dc;
+                    if((dr != 0 || dc != 0) && r >= 0 && r < 8 && c >= 0 && c < 8) king |= 1L << (r * 8 + c);
+                }
+            }
+            Assertions.assertEquals(knight, Attacks.knightAttacks(square), "Knight attacks from " + square);
+            Assertions.assertEquals(king, Attacks.kingAttacks(square), "King attacks from " + square);
+        }
+        //a2 pawns attack only inward, and pawns on their last row attack nothing
+        Assertions.assertEquals(1L << 17, Attacks.pawnAttacks(ChessGame.TeamColor.WHITE, 8));
+        Assertions.assertEquals(1L << 6, Attacks.pawnAttacks(ChessGame.TeamColor.BLACK, 15));
+        Assertions.assertEquals(0, Attacks.pawnAttacks(ChessGame.TeamColor.WHITE, 60));
+        Assertions.assertEquals(0, Attacks.pawnAttacks(ChessGame.TeamColor.BLACK, 3));
+    }
+
+    @Test
+    @DisplayName("Magic Slider Attacks Match Ray Walks")
+    public void magicSliderAttacks() {
+        java.util.Random random = new java.util.Random(42);
+        int[][] rookDirections = {{0, 1},{1, 0},{0, -1},{-1, 0}};
+        int[][] bishopDirections = {{1, 1},{1, -1},{-1, -1},{-1, 1}};
+        for(int trial = 0; trial < 200; ++trial){
+            long occupancy = random.nextLong() & random.nextLong();
+            for(int square = 0; square < 64; ++square){
+                long rook = walkRays(square, occupancy, rookDirections);
+                long bishop = walkRays(square, occupancy, bishopDirections);
+                Assertions.assertEquals(rook, Attacks.rookAttacks(square, occupancy), "Rook attacks from " + square);
+                Assertions.assertEquals(bishop, Attacks.bishopAttacks(square, occupancy), "Bishop from " + square);
+                Assertions.assertEquals(rook | bishop, Attacks.queenAttacks(square, occupancy));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("En Passant Target Lives In The Game")
+    public void enPassantTargetInGame() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        ChessPiece whitePawn = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
+        Assertions.assertSame(whitePawn, game.getBoard().getPiece(new ChessPosition(2, 5)));
+        Assertions.assertSame(whitePawn, new ChessGame(game).getBoard().getPiece(new ChessPosition(2, 4)));
+
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        Assertions.assertEquals(new ChessPosition(3, 5), game.getEnPassantTarget());
+        game.makeMove(new ChessMove(new ChessPosition(7, 1), new ChessPosition(6, 1), null));
+        Assertions.assertNull(game.getEnPassantTarget());
+        game.makeMove(new ChessMove(new ChessPosition(4, 5), new ChessPosition(5, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(7, 4), new ChessPosition(5, 4), null));
+        Assertions.assertEquals("rnbqkbnr/1pp1pppp/p7/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 1", Fen.toFen(game));
+
+        // Both generators read the capture from the game's target square, not from the pawns
+        ChessMove enPassant = new ChessMove(new ChessPosition(5, 5), new ChessPosition(6, 4), null);
+        Assertions.assertTrue(game.validMoves(new ChessPosition(5, 5)).contains(enPassant));
+        game.setMoveGenerationMode(ChessGame.MoveGenerationMode.TRIAL);
+        Assertions.assertTrue(game.validMoves(new ChessPosition(5, 5)).contains(enPassant));
+        Assertions.assertFalse(whitePawn.pieceMoves(game.getBoard(), new ChessPosition(5, 5)).contains(enPassant));
+    }
+
+    @Test
+    @DisplayName("A New Board Clears The En Passant Target")
+    public void newBoardClearsEnPassantTarget() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        game.setBoard(TestUtilities.defaultBoard());
+        Assertions.assertNull(game.getEnPassantTarget());
+        String fen = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR b KQkq - 0 1";
+        Assertions.assertEquals(fen, Fen.toFen(game));
+        Assertions.assertEquals(Fen.load(fen).getZobristKey(), game.getZobristKey());
+
+        game.makeMove(new ChessMove(new ChessPosition(7, 4), new ChessPosition(5, 4), null));
+        game.resetGame();
+        Assertions.assertNull(game.getEnPassantTarget());
+        Assertions.assertEquals(Fen.load(Fen.toFen(game)).getZobristKey(), game.getZobristKey());
+    }
+
+    @Test
+    @DisplayName("Search Finds Mate And Is Deterministic")
+    public void searchFindsMate() {
+        ChessGame backRank = Fen.load("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        SearchResult mate = new Search().search(backRank, Search.Limits.depth(4));
+        Assertions.assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null),
+                mate.getBestMove());
+        Assertions.assertEquals(Search.MATE - 1, mate.getScore());
+        Assertions.assertEquals("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1", Fen.toFen(backRank), "Search changed the game");
+
+        String kiwipete = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+        Search search = new Search();
+        SearchResult first = search.search(Fen.load(kiwipete), Search.Limits.depth(3));
+        SearchResult second = search.search(Fen.load(kiwipete), Search.Limits.depth(3));
+        Assertions.assertEquals(3, first.getDepth());
+        Assertions.assertEquals(first.getNodes(), second.getNodes());
+        Assertions.assertEquals(first.getScore(), second.getScore());
+        Assertions.assertEquals(first.getPrincipalVariation(), second.getPrincipalVariation());
+        Assertions.assertEquals(first.getBestMove(), first.getPrincipalVariation().get(0));
+
+        // A node limit still returns the deepest completed iteration
+        SearchResult limited = new Search().search(Fen.load(kiwipete), Search.Limits.nodes(5000));
+        Assertions.assertNotNull(limited.getBestMove());
+        Assertions.assertTrue(limited.getNodes() <= 5000 + 1024 || limited.getDepth() == 1);
+
+        SearchResult noMoves = new Search().search(Fen.load("7k/6Q1/6K1/8/8/8/8/8 b - - 0 1"), Search.Limits.depth(3));
+        Assertions.assertNull(noMoves.getBestMove());
+        Assertions.assertEquals(-Search.MATE, noMoves.getScore());
+    }
+
+    @Test
+    @DisplayName("A Stopped Search Still Returns A Move")
+    public void stoppedSearchReturnsMove() throws InterruptedException {
+        Search search = new Search();
+        Thread stopper = new Thread(() -> {
+            while(!Thread.currentThread().isInterrupted()) search.stop();
+        });
+        stopper.start();
+        // The stop arrives during the first iteration, which has to finish anyway
+        SearchResult result = search.search(new ChessGame(), Search.Limits.depth(20));
+        stopper.interrupt();
+        stopper.join();
+        Assertions.assertNotNull(result.getBestMove());
+        Assertions.assertTrue(result.getDepth() >= 1);
+    }
+
+    @Test
+    @DisplayName("Lazy SMP Search Shares One Table")
+    public void parallelSearch() {
+        TranspositionTable table = new TranspositionTable(1);
+        Assertions.assertEquals(1 << 16, table.capacity());
+        ChessGame backRank = Fen.load("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        SearchResult mate = ParallelSearch.search(backRank, Search.Limits.depth(4), 3, table);
+        Assertions.assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null),
+                mate.getBestMove());
+        Assertions.assertEquals(Search.MATE - 1, mate.getScore());
+
+        // With a table, a second search of the same position finds the answers waiting and visits fewer nodes
+        String kiwipete = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+        Search search = new Search(table);
+        SearchResult cold = search.search(Fen.load(kiwipete), Search.Limits.depth(4));
+        SearchResult warm = search.search(Fen.load(kiwipete), Search.Limits.depth(4));
+        Assertions.assertEquals(cold.getScore(), warm.getScore());
+        Assertions.assertTrue(warm.getNodes() < cold.getNodes(), warm.getNodes() + " >= " + cold.getNodes());
+        SearchResult parallel = ParallelSearch.search(Fen.load(kiwipete), Search.Limits.depth(4), 2,
+                new TranspositionTable(1));
+        Assertions.assertEquals(4, parallel.getDepth());
+        Assertions.assertTrue(Fen.load(kiwipete).validMoves(parallel.getBestMove().getStartPosition())
+                .contains(parallel.getBestMove()));
+    }
+
+    @Test
+    @DisplayName("Incremental Evaluation Matches A Fresh Score")
+    public void incrementalEvaluation() {
+        ChessGame start = new ChessGame();
+        Assertions.assertEquals(0, start.evaluate(), "The start position is symmetric");
+        // A white queen up is good for white and equally bad for black
+        ChessGame queenUp = Fen.load("4k3/8/8/8/8/8/8/3QK3 w - - 0 1");
+        Assertions.assertTrue(queenUp.evaluate() > 800);
+        queenUp.changeTeamTurn();
+        Assertions.assertTrue(queenUp.evaluate() < -800);
+
+        for(String fen : new String[]{"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"}){
+            compareEvaluation(Fen.load(fen), 3);
+        }
+    }
+
+    private void compareEvaluation(ChessGame game, int depth) {
+        int score = game.evaluate();
+        Assertions.assertEquals(Fen.load(Fen.toFen(game)).evaluate(), score, "Evaluation drifted in " +
+                Fen.toFen(game));
+        if(depth == 0) return;
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(game, game.getTeamTurn(), moves);
+        for(int i = 0; i < moves.size(); ++i){
+            int undo = game.doMove(moves.get(i));
+            compareEvaluation(game, depth - 1);
+            game.undoMove(moves.get(i), undo);
+            Assertions.assertEquals(score, game.evaluate(), "Not restored after " + PackedMove.toString(moves.get(i)));
+        }
+    }
+
+    @Test
+    @DisplayName("Move Ordering Tries The Best Candidates First")
+    public void moveOrdering() {
+        ChessGame position = Fen.load("4k3/8/8/3q3p/4P3/8/8/3QK2R w - - 0 1");
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(position, ChessGame.TeamColor.WHITE, moves);
+        int hashMove = PackedMove.encode(7, 15, null, PackedMove.NONE);
+        int killer = PackedMove.encode(4, 12, null, PackedMove.NONE);
+        MoveOrderer orderer = new MoveOrderer(8);
+        orderer.recordCutoff(ChessGame.TeamColor.WHITE, killer, 0, 3);
+        orderer.score(position, moves, 0, hashMove);
+
+        // The hash move, then pawn takes queen, queen takes queen, rook and queen take pawn, then the killer
+        String[] expected = {"h1->h2", "e4->d5", "d1->d5", "h1->h5", "d1->h5", "e1->e2"};
+        int size = moves.size();
+        for(int i = 0; i < expected.length; ++i){
+            Assertions.assertEquals(expected[i], PackedMove.toString(orderer.next(moves, 0, i)));
+        }
+        for(int i = expected.length; i < size; ++i) orderer.next(moves, 0, i);
+        Assertions.assertEquals(size, moves.size());
+
+        // Without ordering, depth 5 from the start takes over 150000 nodes
+        SearchResult ordered = new Search().search(new ChessGame(), Search.Limits.depth(5));
+        Assertions.assertTrue(ordered.getNodes() < 50000, "Searched " + ordered.getNodes() + " nodes");
+    }
+
+    @Test
+    @DisplayName("Quiescence Search Only Generates Captures And Promotions")
+    public void quiescenceSearch() {
+        for(String fen : new String[]{"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1", "8/8/8/K2pP2q/8/8/8/7k w - d6 0 2",
+                "rnbqkbnr/ppp1pppp/8/8/3p4/4P3/PPPPKPPP/RNBQ1BNR w kq - 0 3"}){
+            ChessGame position = Fen.load(fen);
+            ChessGame.TeamColor side = position.getTeamTurn();
+            MoveList all = new MoveList();
+            MoveList captures = new MoveList();
+            MoveGenerator.generateLegalMoves(position, side, all);
+            MoveGenerator.generateLegalCaptures(position, side, captures);
+            HashSet<Integer> expected = new HashSet<>();
+            for(int i = 0; i < all.size(); ++i){
+                int move = all.get(i);
+                if(PackedMove.isCapture(move) || PackedMove.isPromotion(move)) expected.add(move);
+            }
+            HashSet<Integer> actual = new HashSet<>();
+            for(int i = 0; i < captures.size(); ++i) actual.add(captures.get(i));
+            Assertions.assertEquals(expected, actual, "Captures differ in " + fen);
+
+            ChessBoard board = position.getBoard();
+            for(int square = 0; square < 64; ++square){
+                ChessPosition from = ChessPosition.of(square);
+                ChessPiece piece = board.getPiece(from);
+                if(piece == null || piece.getTeamColor() != side) continue;
+                HashSet<ChessMove> pieceExpected = new HashSet<>();
+                for(ChessMove move : piece.pieceMoves(board, from, position.getEnPassantTarget())){
+                    if(board.getPiece(move.getEndPosition()) != null || move.getPromotionPiece() != null ||
+                            move.getEndPosition().equals(position.getEnPassantTarget())) pieceExpected.add(move);
+                }
+                Assertions.assertEquals(pieceExpected,
+                        new HashSet<>(piece.pieceCaptures(board, from, position.getEnPassantTarget())),
+                        "Piece captures differ at " + from + " in " + fen);
+            }
+        }
+
+        // A one ply search still sees the pawn that would take the queen back
+        ChessGame defended = Fen.load("4k3/8/2p5/3p4/8/8/8/3QK3 w - - 0 1");
+        SearchResult result = new Search().search(defended, Search.Limits.depth(1));
+        Assertions.assertNotEquals(new ChessMove(new ChessPosition(1, 4), new ChessPosition(5, 4), null),
+                result.getBestMove());
+        Assertions.assertTrue(result.getScore() > 600, "Score " + result.getScore());
+    }
+
+    @Test
+    @DisplayName("Malformed FEN Is Rejected")
+    public void malformedFen() {
+        for(String fen : new String[]{"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq z3 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e4 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e33 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/7/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/44p/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"}){
+            Assertions.assertThrows(IllegalArgumentException.class, () -> Fen.load(fen), fen);
+        }
+        String valid = "rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 1";
+        Assertions.assertEquals(valid, Fen.toFen(Fen.load(valid)));
+    }
+
+    @Test
+    @DisplayName("Pawn On Its Last Row Has No Moves")
+    public void pawnOnLastRow() {
+        ChessBoard board = new ChessBoard();
+        ChessPosition whiteSquare = new ChessPosition(8, 4);
+        ChessPosition blackSquare = new ChessPosition(1, 5);
+        board.addPiece(whiteSquare, ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        board.addPiece(blackSquare, ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        Assertions.assertTrue(board.getPiece(whiteSquare).pieceMoves(board, whiteSquare).isEmpty());
+        Assertions.assertTrue(board.getPiece(blackSquare).pieceMoves(board, blackSquare).isEmpty());
+    }
+
+    private static long walkRays(int square, long occupancy, int[][] directions) {
+        long attacks = 0;
+        for(int[] direction : directions){
+            int row = square / 8 + direction[0], col = square % 8 + direction[1];
+            while(row >= 0 && row < 8 && col >= 0 && col < 8){
+                attacks |= 1L << (row * 8 + col);
+                if((occupancy & (1L << (row * 8 + col))) != 0) break;
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return attacks;
+    }
 }
@@ -0,0 +1,93 @@
+package passoff.chess.game;
+
+import chess.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compares perft node counts against the published reference values for positions that exercise checks, pins,
+ * castling, en passant and promotion.
+ */
+public class PerftTests {
+    private static final String POSITION_3 = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    private static final String PROMOTIONS = "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1";
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    private static final String POSITION_5 = "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8";
+
+    @Test
+    @DisplayName("Perft Start Position")
+    public void perftStartPosition() {
+        ChessGame game = new ChessGame();
+        long[] expected = {1, 20, 400, 8902, 197281};
+        for(int depth = 0; depth < expected.length; ++depth){
+            Assertions.assertEquals(expected[depth], Perft.perft(game, depth), "Wrong node count at depth " + depth);
+        }
+    }
+
+    @Test
+    @DisplayName("Perft En Passant And Discovered Checks")
+    public void perftPosition3() {
+        ChessGame game = Fen.load(POSITION_3);
+        long[] expected = {1, 14, 191, 2812, 43238};
+        for(int depth = 0; depth < expected.length; ++depth){
+            Assertions.assertEquals(expected[depth], Perft.perft(game, depth), "Wrong node count at depth " + depth);
+        }
+    }
+
+    @Test
+    @DisplayName("Perft Promotions")
+    public void perftPromotions() {
+        ChessGame game = Fen.load(PROMOTIONS);
+        long[] expected = {1, 24, 496, 9483, 182838};
+        for(int depth = 0; depth < expected.length; ++depth){
+            Assertions.assertEquals(expected[depth], Perft.perft(game, depth), "Wrong node count at depth " + depth);
+        }
+    }
+
+    @Test
+    @DisplayName("Perft Kiwipete")
+    public void perftKiwipete() {
+        ChessGame game = Fen.load(KIWIPETE);
+        long[] expected = {1, 48, 2039, 97862, 4085603};
+        for(int depth = 0; depth < expected.length; ++depth){
+            Assertions.assertEquals(expected[depth], Perft.perft(game, depth), "Wrong node count at depth " + depth);
+        }
+        Assertions.assertEquals(KIWIPETE, Fen.toFen(game), "Game not restored after perft");
+    }
+
+    @Test
+    @DisplayName("Perft Castling Rights Lost By Capture")
+    public void perftPosition5() {
+        ChessGame game = Fen.load(POSITION_5);
+        long[] expected = {1, 44, 1486, 62379, 2103487};
+        for(int depth = 0; depth < expected.length; ++depth){
+            Assertions.assertEquals(expected[depth], Perft.perft(game, depth), "Wrong node count at depth " + depth);
+        }
+    }
+
+    @Test
+    @DisplayName("Divide Sums To Perft")
+    public void divideSumsToPerft() {
+        ChessGame game = Fen.load(POSITION_3);
+        var counts = Perft.divide(game, 3);
+        Assertions.assertEquals(14, counts.size());
+        Assertions.assertEquals(2812, counts.values().stream().mapToLong(Long::longValue).sum());
+        Assertions.assertEquals(POSITION_3, Fen.toFen(game), "Game not restored after divide");
+    }
+
+    @Test
+    @DisplayName("Parallel Perft Matches Sequential")
+    public void parallelPerftMatchesSequential() {
+        ChessGame game = new ChessGame();
+        Assertions.assertEquals(197281, ParallelPerft.perft(game, 4));
+        Assertions.assertEquals(new ChessGame().getBoard(), game.getBoard(), "Parallel perft changed the game");
+
+        ChessGame position3 = Fen.load(POSITION_3);
+        var pool = new ForkJoinPool(4);
+        Assertions.assertEquals(Perft.divide(position3, 4), ParallelPerft.divide(position3, 4, pool));
+        pool.shutdown();
+    }
+}